@@ -35,7 +35,7 @@ public class FakeEmailGenerator
      */
     public static void noEmail()
     {
-        var publisher = new PublisherImpl();
+        var publisher = PublisherImpl.emails();
         var subscriber = new SubscriberImpl();
         publisher.subscribe(subscriber);
         // No request is made, so no emails will be generated
@@ -56,7 +56,7 @@ public class FakeEmailGenerator
      */
     public static void itemsExceedScenario() throws InterruptedException
     {
-        var publisher = new PublisherImpl();
+        var publisher = PublisherImpl.emails();
         var subscriber = new SubscriberImpl();
         publisher.subscribe(subscriber);
         subscriber.getSubscription().request(3);
@@ -83,7 +83,7 @@ public class FakeEmailGenerator
      */
     public static void cancelSubscriptionScenario() throws InterruptedException
     {
-        var publisher = new PublisherImpl();
+        var publisher = PublisherImpl.emails();
         var subscriber = new SubscriberImpl();
         publisher.subscribe(subscriber);
         subscriber.getSubscription().request(3);
@@ -98,28 +98,28 @@ public class FakeEmailGenerator
     }
 
     /**
-     * Demonstrates a scenario where an error is thrown due to excessive requests.
+     * Demonstrates a scenario where an error is thrown due to an invalid request.
      *
      * This scenario shows:
      * 1. Normal operation up to a certain point
-     * 2. The Publisher's error handling when requests exceed a certain threshold
+     * 2. The Publisher's error handling when a non-positive number of items is requested
      * 3. The Subscriber's behavior after an error is received
      *
-     * Use case: Testing error handling and the system's resilience to excessive demands.
+     * Use case: Testing error handling and the system's resilience to invalid demands.
      *
      * @throws InterruptedException if any of the sleep operations are interrupted
      */
     public static void throwErrorScenario() throws InterruptedException
     {
-        var publisher = new PublisherImpl();
+        var publisher = PublisherImpl.emails();
         var subscriber = new SubscriberImpl();
         publisher.subscribe(subscriber);
         subscriber.getSubscription().request(3);
         Thread.sleep(Duration.ofSeconds(2));
-        subscriber.getSubscription().request(11);
+        subscriber.getSubscription().request(0);
         Thread.sleep(Duration.ofSeconds(2));
         subscriber.getSubscription().request(3);
-        // The large request of 11 items might trigger an error
+        // Requesting 0 items violates the Reactive Streams specification and triggers an error
     }
 }
 
@@ -145,7 +145,7 @@ public class FakeEmailGenerator
  *
  * 4. Throw Error Scenario (throwErrorScenario()):
  *    - Demonstrates error handling capabilities of the reactive system.
- *    - Shows how the system responds to requests exceeding predefined limits.
+ *    - Shows how the system responds to requests that violate the Reactive Streams rules.
  *    - Illustrates the importance of proper error propagation in asynchronous systems.
  *    - In production, this could help in identifying and handling system misuse or overload.
  *
@@ -3,6 +3,8 @@ package io.learn.reactiveprogramming;
 import io.learn.reactiveprogramming.client.ExternalServiceClient;
 import io.learn.reactiveprogramming.common.AbstractHttpClient;
 import io.learn.reactiveprogramming.common.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * NonBlockingIO demonstrates the use of non-blocking I/O operations in reactive programming.
@@ -16,6 +18,8 @@ import io.learn.reactiveprogramming.common.Util;
  */
 public class NonBlockingIO
 {
+    private static final Logger log = LoggerFactory.getLogger(NonBlockingIO.class);
+
     /**
      * The main method sets up and executes the non-blocking I/O demonstration.
      * It creates multiple requests for product information and processes them concurrently.
@@ -27,17 +31,24 @@ public class NonBlockingIO
         // Create a new instance of ExternalServiceClient using the default HTTP client
         var client = new ExternalServiceClient(AbstractHttpClient.createDefaultHttpClient());
 
+        // Open the connections up front, so the first requests do not pay for connection set-up
+        var report = client.warmUp(32).block();
+        log.info("warm-up: {}", report);
+
         // Loop through product IDs from 1 to 100
         for (int i = 1; i <= 100; i++)
         {
-            // Call the getProductName method with the current product ID
+            // Call the getProductNameBatched method with the current product ID
             // and subscribe to the resulting Mono<String> using Util.subscriber()
-            // Requests are made in sequence but responses are received asynchronously due to non-blocking I/O
-            client.getProductName(i).subscribe(Util.subscriber());
+            // The IDs requested within the same 10ms window travel together in one batch request,
+            // and the responses are received asynchronously due to non-blocking I/O
+            client.getProductNameBatched(i).subscribe(Util.subscriber());
         }
 
         // Wait for 2 seconds to allow asynchronous operations to complete
         Util.sleepSeconds(2);
+        log.info("{} lookups sent in {} batch requests",
+                client.getProductBatchLoader().getLoadCount(), client.getProductBatchLoader().getBatchCount());
     }
 }
 
@@ -58,8 +69,8 @@ public class NonBlockingIO
  *    - The client likely uses reactive programming principles internally to manage requests.
  *
  * 4. Concurrent Request Handling:
- *    - The loop rapidly initiates 100 requests for product names.
- *    - Each call to getProductName() returns a Mono<String>, representing an asynchronous result.
+ *    - The loop rapidly initiates 100 lookups for product names, which the client gathers into a few batch requests.
+ *    - Each call to getProductNameBatched() returns a Mono<String>, representing an asynchronous result.
  *    - The subscribe() method is called immediately for each Mono, setting up the processing of the result.
  *
  * 5. Asynchronous Processing:
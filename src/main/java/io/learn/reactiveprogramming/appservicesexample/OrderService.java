@@ -26,7 +26,8 @@ public class OrderService
     {
         return Flux.fromIterable(orderDB.getOrDefault(userId, List.of()))
                 .delayElements(Duration.ofMillis(500))
-                .transform(Util.fluxLogger("order-for-user" + userId));
+                // One stage for all users; a name per user would register an MBean per user that is never removed
+                .transform(Util.fluxLogger("order-for-user"));
     }
 
 }
@@ -0,0 +1,60 @@
+package io.learn.reactiveprogramming.backpressure;
+
+import io.learn.reactiveprogramming.common.Util;
+import io.learn.reactiveprogramming.subscriber.AdaptiveDemandSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+public class AdaptiveDemand
+{
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveDemand.class);
+
+    public static void main(String[] args)
+    {
+        var producer = Flux.generate(
+                        () -> 1,
+                        (state, sink) -> {
+                            sink.next(state);
+                            return ++state;
+                        }
+                )
+                .cast(Integer.class)
+                .doOnRequest(n -> log.info("requested: {}", n))
+                .subscribeOn(Schedulers.parallel());
+
+        // Slow at first, so only a few items are requested at a time,
+        // then fast, so the requests grow until they hit the maximum batch size
+        producer
+                .take(2_000)
+                .subscribe(new AdaptiveDemandSubscriber<Integer>(1, 512, Duration.ofMillis(50))
+                {
+                    @Override
+                    protected void process(Integer item)
+                    {
+                        AdaptiveDemand.process(item);
+                    }
+                });
+
+        Util.sleepSeconds(5);
+
+        // The same work with unbounded demand, measured instead of logged, as a baseline for the adaptive run above
+        producer
+                .take(2_000)
+                .doOnNext(AdaptiveDemand::process)
+                .subscribe(Util.metricsSubscriber("unbounded demand"));
+
+        Util.sleepSeconds(5);
+    }
+
+    private static void process(int item)
+    {
+        if (item <= 20)
+        {
+            Util.sleep(Duration.ofMillis(100));
+        }
+    }
+}
@@ -33,10 +33,11 @@ public class BackPressureHandlingWithMultipleSubscribers
                 .map(BackPressureHandlingWithMultipleSubscribers::timeConsumingOperation)
                 .subscribe(Util.subscriber());
 
+        // The fast subscriber is measured rather than logged, so its rate can be compared with the slow one
         producer
                 .take(100)
                 .publishOn(Schedulers.boundedElastic())
-                .subscribe(Util.subscriber());
+                .subscribe(Util.metricsSubscriber("fast"));
 
         Util.sleepSeconds(60);
 
@@ -6,10 +6,11 @@ public record BookOrder(String genre, String title, Integer price)
 {
     public static BookOrder create()
     {
+        var data = Util.data();
         return new BookOrder(
-                Util.faker().book().genre(),
-                Util.faker().book().title(),
-                Util.faker().random().nextInt(100, 1000)
+                data.bookGenre(),
+                data.bookTitle(),
+                data.number(100, 1000)
         );
     }
 }
@@ -6,11 +6,11 @@ public record PurchaseOrder(String item, String category, Integer price )
 {
     public static PurchaseOrder create()
     {
-        var commerce = Util.faker().commerce();
+        var data = Util.data();
         return new PurchaseOrder(
-               commerce.productName(),
-               commerce.department(),
-               Util.faker().random().nextInt(100, 1000)
+               data.productName(),
+               data.department(),
+               data.number(100, 1000)
         );
     }
 }
@@ -1,11 +1,28 @@
 package io.learn.reactiveprogramming.client;
 
 import io.learn.reactiveprogramming.common.AbstractHttpClient;
+import io.learn.reactiveprogramming.common.BatchLoader;
+import io.learn.reactiveprogramming.common.BodyAggregator;
+import io.learn.reactiveprogramming.common.ConcurrencyLimiter;
+import io.learn.reactiveprogramming.common.IntFrameDecoder;
+import io.learn.reactiveprogramming.common.RateLimiter;
+import io.learn.reactiveprogramming.common.ResponseCache;
+import io.learn.reactiveprogramming.common.SingleFlight;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
 
 /**
  * A client for interacting with an external service to retrieve product information.
@@ -14,6 +31,18 @@ import java.nio.file.Path;
 */
 public class ExternalServiceClient extends AbstractHttpClient
 {
+    private static final Logger log = LoggerFactory.getLogger(ExternalServiceClient.class);
+
+    // Concurrent requests for the same URI share one HTTP exchange
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    // The service's quota: 200 requests per second with bursts of 100, shared by every caller of this client
+    private final RateLimiter rateLimiter = new RateLimiter(200, 100);
+    // Learns how many product lookups the service handles well at once; excess lookups wait up to 5s, then fail fast
+    private final ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(100, 2, 500, 1_000, Duration.ofSeconds(5));
+    // Product IDs requested within 10ms are fetched together, up to 100 per request
+    private final BatchLoader<Integer, String> productBatchLoader =
+            new BatchLoader<>(this::getProductNames, 100, Duration.ofMillis(10));
+
     /**
      * Constructs an instance of the AbstractHttpClient.
      *
@@ -23,8 +52,19 @@ public class ExternalServiceClient extends AbstractHttpClient
         super(httpClient);
     }
 
+    /**
+     * Constructs an instance of the AbstractHttpClient that caches product lookups.
+     *
+     * @param httpClient    The HttpClient instance to be used for making HTTP requests.
+     * @param responseCache The cache honouring the service's Cache-Control and ETag headers.
+     */
+    public ExternalServiceClient(HttpClient httpClient, ResponseCache responseCache) {
+        super(httpClient, responseCache);
+    }
+
     /**
      * Sends a GET request to retrieve the name of a product by its ID.
+     * Concurrent calls for the same product share a single request.
      *
      * @param productId The ID of the product to retrieve the name for.
      * @return A Mono that emits the product name as a String, or an error if the request fails.
@@ -36,23 +76,126 @@ public class ExternalServiceClient extends AbstractHttpClient
 
         // Create a new GET request using a reactive HTTP client
         // Set the URI for the request using the formatted URI string
-        // Retrieve the response content (body) as a Flux<DataBuffer>
-        // Convert the Flux<DataBuffer> to a Mono<String> by aggregating the DataBuffers into a single String
+        // Retrieve the response content (body) as a Flux<ByteBuf>
+        // Convert the Flux<ByteBuf> to a Mono<String> by aggregating all chunks into a single pooled buffer
         // Return the Mono<String> representing the aggregated response body
-        return httpClient.get()
-                .uri(uri)
-                .responseContent()
-                .asString()
-                .next();
+        return singleFlight.execute(uri, () -> get(uri, (response, body) -> BodyAggregator.aggregate(body)));
+    }
+
+    /**
+     * Retrieves the name of a product through the batch endpoint.
+     * IDs requested by concurrent callers within a short window are sent together as one request,
+     * and each caller receives only the name of its own product.
+     *
+     * @param productId The ID of the product to retrieve the name for.
+     * @return A Mono that emits the product name, or completes empty if the service does not know the product.
+     */
+    public Mono<String> getProductNameBatched(int productId)
+    {
+        return productBatchLoader.load(productId);
     }
 
+    /**
+     * @return The batching used by getProductNameBatched, with its counters.
+     */
+    public BatchLoader<Integer, String> getProductBatchLoader()
+    {
+        return productBatchLoader;
+    }
+
+    /**
+     * Sends a GET request to the given path. Concurrent calls for the same path share a single request.
+     *
+     * @param path The path to request, relative to the base URL.
+     * @return A Mono that emits the response body as a String.
+     */
     public Mono<String> getProductNameByPath(String path)
     {
+        return singleFlight.execute(path, () -> get(path, (response, body) -> BodyAggregator.aggregate(body)));
+    }
+
+    /**
+     * Product lookups that reach the network wait for a token from the rate limiter, then for a permit from the
+     * concurrency limiter; cache hits do neither. The token is taken first, so the time spent waiting for it
+     * does not count as upstream latency.
+     */
+    @Override
+    protected <T> Mono<T> limitExchange(Mono<T> exchange)
+    {
+        return rateLimiter.limit(concurrencyLimiter.limit(exchange));
+    }
+
+    /**
+     * @return The rate limit shared by every request of this client, with its counters.
+     */
+    public RateLimiter getRateLimiter()
+    {
+        return rateLimiter;
+    }
+
+    /**
+     * @return The adaptive limit on product lookups in flight, with its counters.
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter()
+    {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * @return The request coalescing used by getProductName and getProductNameByPath, with its counters.
+     */
+    public SingleFlight<String, String> getSingleFlight()
+    {
+        return singleFlight;
+    }
+
+    /**
+     * Sends one GET request to /demo01/product/batch?ids=1,2,3, which answers with one "id:name" line per known product.
+     * Lines that are not "id:name" are logged and skipped, so one bad line does not fail the whole batch.
+     *
+     * @param productIds The IDs of the products to retrieve the names for.
+     * @return A Mono that emits the names keyed by product ID, or an error if the service does not answer with 200.
+     */
+    private Mono<Map<Integer, String>> getProductNames(List<Integer> productIds)
+    {
+        String uri = productIds.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",", "/demo01/product/batch?ids=", ""));
         return httpClient.get()
-                .uri(path)
-                .responseContent()
-                .asString()
-                .next();
+                .uri(uri)
+                .response((response, body) -> response.status().code() == 200
+                        ? BodyAggregator.aggregate(body)
+                        : Mono.<String>error(new IllegalStateException("Batch request " + uri + " failed with status " + response.status())))
+                .next()
+                .transform(rateLimiter::limit)
+                .map(ExternalServiceClient::parseProductNames);
+    }
+
+    private static Map<Integer, String> parseProductNames(String body)
+    {
+        Map<Integer, String> names = new HashMap<>();
+        for (String line : body.split("\n"))
+        {
+            if (line.isBlank())
+            {
+                continue;
+            }
+            int separator = line.indexOf(':');
+            if (separator > 0)
+            {
+                try
+                {
+                    names.put(Integer.parseInt(line.substring(0, separator).trim()), line.substring(separator + 1).trim());
+                    continue;
+                }
+                catch (NumberFormatException e)
+                {
+                    // Logged below like any other malformed line
+                }
+            }
+            log.warn("skipping malformed line in batch response: {}", line);
+        }
+        return names;
     }
 
     /**
@@ -66,11 +209,30 @@ public class ExternalServiceClient extends AbstractHttpClient
         String uri = "/demo02/stock/stream";
 
         // Create a Flux by sending a GET request to the specified URI
+        // and decode the prices straight from the response ByteBufs. The upstream sends one price per chunk;
+        // a stream declared as newline-delimited may also split a price across chunks or put several in one
         return httpClient.get()
                 .uri(uri)
-                .responseContent() // Get the response content as a Flux<DataBuffer>
-                .asString() // Convert the Flux<DataBuffer> to a Flux<String>
-                .map(Integer::parseInt); // Convert each String element to an Integer
+                .response((response, body) -> IntFrameDecoder.decode(body, framing(response)));
+    }
+
+    /**
+     * Streams the stock price changes to a consumer as primitive ints, without allocating per price.
+     *
+     * @param consumer Receives every price change, on the event loop delivering the response.
+     * @return A Mono completing when the stream ends
+     */
+    public Mono<Void> consumeStockPriceChanges(IntConsumer consumer)
+    {
+        return httpClient.get()
+                .uri("/demo02/stock/stream")
+                .response((response, body) -> IntFrameDecoder.consume(body, framing(response), consumer))
+                .then();
+    }
+
+    private static IntFrameDecoder.Framing framing(HttpClientResponse response)
+    {
+        return IntFrameDecoder.Framing.forContentType(response.responseHeaders().get(HttpHeaderNames.CONTENT_TYPE));
     }
 
 }
@@ -1,12 +1,19 @@
 package io.learn.reactiveprogramming.common;
 
 import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
 import reactor.netty.http.client.HttpClient;
-import reactor.netty.resources.LoopResources;
+import reactor.netty.http.client.HttpClientResponse;
 
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 /**
  * An abstract base class for creating HTTP clients using reactive programming principles.
@@ -23,8 +30,8 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractHttpClient {
 
-    private static final String BASE_URL = "http://localhost:7070";
     protected final HttpClient httpClient;
+    private final ResponseCache responseCache;
 
     /**
      * Constructs an instance of the AbstractHttpClient.
@@ -32,16 +39,95 @@ public abstract class AbstractHttpClient {
      * @param httpClient The HttpClient instance to be used for making HTTP requests.
      */
     public AbstractHttpClient(HttpClient httpClient) {
+        this(httpClient, null);
+    }
+
+    /**
+     * Constructs an instance of the AbstractHttpClient that caches GET responses made through
+     * {@link #get(String, BiFunction)} according to their Cache-Control and ETag headers.
+     *
+     * @param httpClient    The HttpClient instance to be used for making HTTP requests.
+     * @param responseCache The cache to use, or null to disable caching.
+     */
+    public AbstractHttpClient(HttpClient httpClient, ResponseCache responseCache) {
         this.httpClient = httpClient;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * @return The response cache, or null if caching is disabled.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Sends a GET request and maps the response with the given handler, going through the response cache if enabled.
+     *
+     * With a cache:
+     * - A fresh stored response is returned without touching the network.
+     * - A stale stored response with an ETag is revalidated with If-None-Match; a 304 reply returns the stored body.
+     * - A 200 reply is handed to the handler and its result is stored if the headers allow it.
+     * - Any other status is handed to the handler, which decides how to surface it.
+     *
+     * @param uri     The URI to request.
+     * @param handler Maps the response status and body to the result, for example (response, body) -> BodyAggregator.aggregate(body).
+     * @return A Mono that emits the first element produced by the handler.
+     */
+    protected Mono<String> get(String uri, BiFunction<? super HttpClientResponse, ? super ByteBufFlux, ? extends Publisher<String>> handler) {
+        if (responseCache == null) {
+            return limitExchange(httpClient.get()
+                    .uri(uri)
+                    .response(handler)
+                    .next());
+        }
+        return Mono.defer(() -> {
+            var cached = responseCache.get(uri);
+            if (cached != null && cached.isFresh()) {
+                responseCache.recordHit();
+                return Mono.just(cached.body());
+            }
+            responseCache.recordMiss();
+            var client = cached != null && cached.etag() != null
+                    ? httpClient.headers(headers -> headers.set(HttpHeaderNames.IF_NONE_MATCH, cached.etag()))
+                    : httpClient;
+            return limitExchange(client.get()
+                    .uri(uri)
+                    .response((response, body) -> switch (response.status().code()) {
+                        case 304 -> cached != null
+                                ? Flux.just(responseCache.refresh(uri, cached, response.responseHeaders()).body())
+                                : handler.apply(response, body);
+                        case 200 -> Flux.from(handler.apply(response, body))
+                                .take(1)
+                                .doOnNext(value -> responseCache.store(uri, response.responseHeaders(), value));
+                        default -> handler.apply(response, body);
+                    })
+                    .next());
+        });
+    }
+
+    /**
+     * Wraps every exchange that {@link #get(String, BiFunction)} sends over the network, but not cache hits.
+     * Subclasses override it to apply admission control such as a concurrency limit; by default it does nothing.
+     *
+     * @param exchange The HTTP exchange, not yet subscribed to.
+     * @return The exchange to subscribe to instead.
+     */
+    protected <T> Mono<T> limitExchange(Mono<T> exchange) {
+        return exchange;
     }
 
     /**
      * Creates a new HttpClient instance with default settings.
      *
      * This method demonstrates how to configure an HttpClient with:
-     * - Custom event loop resources for optimal performance
+     * - Event loop resources shared by every client and sized to the number of cores
+     * - The native epoll transport when it is available
+     * - A shared, bounded connection pool with idle eviction and metrics
      * - A base URL for all requests
      *
+     * See {@link HttpClientFactory} to tune these settings or to read the pool metrics.
+     *
      * Additional configurations could include:
      * - Connection timeouts
      * - Response timeouts
@@ -52,10 +138,71 @@ public abstract class AbstractHttpClient {
      * @return A new HttpClient instance.
      */
     public static HttpClient createDefaultHttpClient() {
-        var loopResources = LoopResources.create("http-client", 1, true);
-        return HttpClient.create()
-                .runOn(loopResources)
-                .baseUrl(BASE_URL);
+        return HttpClientFactory.shared().create();
+    }
+
+    /**
+     * Prepares the client for traffic, so that the first real requests do not pay for start-up costs.
+     *
+     * It first calls HttpClient.warmup(), which initializes the event loop, the native transport, the DNS resolver
+     * and the HTTP codecs. It then sends the given number of HEAD requests to {@link #warmUpPath()} at the same time,
+     * which opens that many connections and leaves them idle in the pool. Any response, even a 404, validates a connection.
+     *
+     * @param connections The number of connections to open; 0 only warms up the transport.
+     * @return A Mono emitting the timings of the warm-up.
+     * @throws IllegalArgumentException If connections is negative.
+     */
+    public Mono<WarmUpReport> warmUp(int connections) {
+        if (connections < 0) {
+            throw new IllegalArgumentException("connections must not be negative but was " + connections);
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            var transportReady = new long[1];
+            return httpClient.warmup()
+                    .doOnSuccess(ignored -> transportReady[0] = System.nanoTime())
+                    .thenMany(Flux.range(0, connections)
+                            .flatMap(i -> {
+                                long requestStart = System.nanoTime();
+                                return httpClient.head()
+                                        .uri(warmUpPath())
+                                        .responseSingle((response, body) -> body.then(Mono.just(System.nanoTime() - requestStart)))
+                                        .onErrorResume(e -> Mono.just(-1L));
+                            }, Math.max(1, connections)))
+                    .collectList()
+                    .map(durations -> {
+                        var succeeded = durations.stream().filter(d -> d >= 0).mapToLong(Long::longValue).summaryStatistics();
+                        return new WarmUpReport(
+                                Duration.ofNanos(transportReady[0] - start),
+                                (int) succeeded.getCount(),
+                                connections - (int) succeeded.getCount(),
+                                Duration.ofNanos(succeeded.getCount() == 0 ? 0 : succeeded.getMin()),
+                                Duration.ofNanos(succeeded.getCount() == 0 ? 0 : succeeded.getMax()),
+                                Duration.ofNanos(System.nanoTime() - start));
+                    });
+        });
+    }
+
+    /**
+     * The path requested by {@link #warmUp(int)} to open connections. Subclasses may return a cheap endpoint of their service.
+     *
+     * @return The path to send the warm-up HEAD requests to.
+     */
+    protected String warmUpPath() {
+        return "/";
+    }
+
+    /**
+     * The timings of a warm-up.
+     *
+     * @param transport   The time to initialize the event loop, resolver and codecs.
+     * @param connections The number of connections opened and validated.
+     * @param failures    The number of warm-up requests that failed.
+     * @param fastest     The fastest warm-up request, including its connection set-up.
+     * @param slowest     The slowest warm-up request, including its connection set-up.
+     * @param total       The duration of the whole warm-up.
+     */
+    public record WarmUpReport(Duration transport, int connections, int failures, Duration fastest, Duration slowest, Duration total) {
     }
 
     /**
@@ -0,0 +1,185 @@
+package io.learn.reactiveprogramming.common;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Gathers individual key lookups into bulk calls, in the style of a DataLoader.
+ *
+ * Every {@link #load(Object)} adds its key to the current batch. The batch is sent as one call to the batch
+ * function when it holds maxBatchSize distinct keys, or maxWait after its first key arrived, whichever comes
+ * first. The result map is then split back out: each caller receives the value for its key, or completes
+ * empty if the map has no value for it. If the batch call fails, every caller in the batch receives the error.
+ *
+ * The same key requested several times within one window is sent once. A caller that cancels before its batch
+ * is sent leaves the batch, and a key whose callers have all cancelled is not sent at all.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class BatchLoader<K, V>
+{
+    private final Function<? super List<K>, ? extends Mono<Map<K, V>>> batchFunction;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final Scheduler scheduler;
+
+    private LinkedHashMap<K, List<MonoSink<V>>> pending = new LinkedHashMap<>();
+    private Disposable scheduledFlush;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @param batchFunction Loads the values for a list of distinct keys in one call
+     * @param maxBatchSize  The maximum number of distinct keys per call
+     * @param maxWait       How long the first key of a batch may wait for others to join it
+     */
+    public BatchLoader(Function<? super List<K>, ? extends Mono<Map<K, V>>> batchFunction, int maxBatchSize, Duration maxWait)
+    {
+        this(batchFunction, maxBatchSize, maxWait, Schedulers.parallel());
+    }
+
+    /**
+     * @param batchFunction Loads the values for a list of distinct keys in one call
+     * @param maxBatchSize  The maximum number of distinct keys per call
+     * @param maxWait       How long the first key of a batch may wait for others to join it
+     * @param scheduler     The scheduler running the window timer
+     */
+    public BatchLoader(Function<? super List<K>, ? extends Mono<Map<K, V>>> batchFunction, int maxBatchSize, Duration maxWait, Scheduler scheduler)
+    {
+        if (maxBatchSize <= 0)
+        {
+            throw new IllegalArgumentException("maxBatchSize must be positive but was " + maxBatchSize);
+        }
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns a Mono that, on subscription, adds the key to the current batch.
+     *
+     * @param key The key to load
+     * @return A Mono emitting the value for the key once its batch has been loaded
+     */
+    public Mono<V> load(K key)
+    {
+        return Mono.create(sink ->
+        {
+            loads.increment();
+            Map<K, List<MonoSink<V>>> full = null;
+            sink.onCancel(() -> remove(key, sink));
+            synchronized (this)
+            {
+                pending.computeIfAbsent(key, k -> new ArrayList<>(1)).add(sink);
+                if (pending.size() >= maxBatchSize)
+                {
+                    full = takePending();
+                }
+                else if (scheduledFlush == null)
+                {
+                    scheduledFlush = scheduler.schedule(this::flush, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            if (full != null)
+            {
+                dispatch(full);
+            }
+        });
+    }
+
+    /**
+     * Sends the current batch immediately instead of waiting for the window to close.
+     */
+    public void flush()
+    {
+        Map<K, List<MonoSink<V>>> batch;
+        synchronized (this)
+        {
+            batch = takePending();
+        }
+        if (!batch.isEmpty())
+        {
+            dispatch(batch);
+        }
+    }
+
+    /**
+     * @return The number of individual loads requested
+     */
+    public long getLoadCount()
+    {
+        return loads.sum();
+    }
+
+    /**
+     * @return The number of batch calls made
+     */
+    public long getBatchCount()
+    {
+        return batches.sum();
+    }
+
+    /**
+     * Takes a cancelled caller out of the batch being gathered. Once a batch has been sent this does nothing;
+     * its result is simply not delivered to the cancelled caller.
+     */
+    private synchronized void remove(K key, MonoSink<V> sink)
+    {
+        var sinks = pending.get(key);
+        if (sinks != null && sinks.remove(sink) && sinks.isEmpty())
+        {
+            pending.remove(key);
+        }
+    }
+
+    private Map<K, List<MonoSink<V>>> takePending()
+    {
+        var batch = pending;
+        pending = new LinkedHashMap<>();
+        if (scheduledFlush != null)
+        {
+            scheduledFlush.dispose();
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<K, List<MonoSink<V>>> batch)
+    {
+        batches.increment();
+        Mono.defer(() -> batchFunction.apply(List.copyOf(batch.keySet())))
+                .defaultIfEmpty(Map.of())
+                .subscribe(
+                        values -> batch.forEach((key, sinks) ->
+                        {
+                            var value = values.get(key);
+                            for (var sink : sinks)
+                            {
+                                if (value != null)
+                                {
+                                    sink.success(value);
+                                }
+                                else
+                                {
+                                    sink.success();
+                                }
+                            }
+                        }),
+                        error -> batch.values().forEach(sinks -> sinks.forEach(sink -> sink.error(error))));
+    }
+}
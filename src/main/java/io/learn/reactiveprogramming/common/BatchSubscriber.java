@@ -0,0 +1,35 @@
+package io.learn.reactiveprogramming.common;
+
+import org.reactivestreams.Subscriber;
+
+import java.util.List;
+
+/**
+ * A batch-aware Subscriber that receives many elements in a single callback.
+ *
+ * Delivering a list instead of one element per onNext call pays the virtual call, the log call and
+ * the demand update once per batch rather than once per element. Use {@link Util#batched(int, java.time.Duration)}
+ * to pack a normal Flux into batches for a subscriber of this type.
+ *
+ * Contract:
+ * - request(n) counts batches, not elements.
+ * - A batch is never empty and holds at most the maxSize given to the adapter.
+ * - The list belongs to the subscriber once delivered; it may be kept or modified.
+ *
+ * @param <T> The type of elements contained in each batch
+ */
+public interface BatchSubscriber<T> extends Subscriber<List<T>>
+{
+    /**
+     * Called with the next batch of elements.
+     *
+     * @param batch A non-empty list of elements, in the order they were emitted upstream
+     */
+    void onNextBatch(List<T> batch);
+
+    @Override
+    default void onNext(List<T> batch)
+    {
+        onNextBatch(batch);
+    }
+}
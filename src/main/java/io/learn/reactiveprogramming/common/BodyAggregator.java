@@ -0,0 +1,76 @@
+package io.learn.reactiveprogramming.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.handler.codec.TooLongFrameException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Joins all chunks of an HTTP response body into one String, within a size limit.
+ *
+ * responseContent().asString().next() decodes only the first chunk of a body, silently losing the rest
+ * of a larger response, and cancels the exchange early, which closes the connection instead of returning
+ * it to the pool. This aggregator reads the whole body:
+ * - each chunk is retained and added to a CompositeByteBuf from the pooled allocator, so the bytes are never copied
+ *   while the body arrives;
+ * - once the body is complete it is decoded straight from those buffers into a String;
+ * - a body growing past maxBytes fails with a TooLongFrameException instead of exhausting memory.
+ * The composite buffer, and with it every retained chunk, is released when the Mono terminates or is cancelled.
+ */
+public class BodyAggregator
+{
+    /**
+     * The default largest body accepted, 1 MiB.
+     */
+    public static final int DEFAULT_MAX_BYTES = 1 << 20;
+    // Enough components for any body within the limit without Netty consolidating them into a copy
+    private static final int MAX_COMPONENTS = 1024;
+
+    private BodyAggregator()
+    {
+    }
+
+    /**
+     * Aggregates a UTF-8 body of at most {@link #DEFAULT_MAX_BYTES}.
+     *
+     * @param body The body chunks, for example responseContent() or the ByteBufFlux handed to response()
+     * @return A Mono emitting the whole body, or completing empty if the body is empty
+     */
+    public static Mono<String> aggregate(Flux<? extends ByteBuf> body)
+    {
+        return aggregate(body, DEFAULT_MAX_BYTES, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Aggregates a body of at most maxBytes.
+     *
+     * @param body     The body chunks
+     * @param maxBytes The largest body accepted
+     * @param charset  The charset to decode the body with
+     * @return A Mono emitting the whole body, or completing empty if the body is empty
+     */
+    public static Mono<String> aggregate(Flux<? extends ByteBuf> body, int maxBytes, Charset charset)
+    {
+        return Mono.using(
+                () -> ByteBufAllocator.DEFAULT.compositeBuffer(MAX_COMPONENTS),
+                composite -> body
+                        .doOnNext(chunk -> append(composite, chunk, maxBytes))
+                        .then(Mono.fromCallable(() -> composite.isReadable() ? composite.toString(charset) : null)),
+                CompositeByteBuf::release);
+    }
+
+    private static void append(CompositeByteBuf composite, ByteBuf chunk, int maxBytes)
+    {
+        if (composite.readableBytes() + chunk.readableBytes() > maxBytes)
+        {
+            throw new TooLongFrameException("Response body exceeds " + maxBytes + " bytes");
+        }
+        // The chunk is released by reactor-netty once this returns, so keep our own reference
+        composite.addComponent(true, chunk.retain());
+    }
+}
@@ -0,0 +1,364 @@
+package io.learn.reactiveprogramming.common;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how many calls are in flight at once, and learns the limit from the upstream's latency gradient.
+ *
+ * Single latencies say little: an upstream whose latency varies randomly between 100 and 500ms is not congested
+ * when a call takes 400ms. The limiter therefore smooths the latency with a moving average over the last 50 or so
+ * calls, and compares it with a baseline: the lowest smoothed latency of the last 1000 calls, which stands for the
+ * upstream's latency without queueing and follows an upstream that became permanently slower within that window.
+ * - While the smoothed latency stays within tolerance times the baseline and the limit is actually being used,
+ *   the limit grows by about its square root per round trip, and queued calls are let through at once.
+ * - When the smoothed latency rises above that, the upstream is queueing work, so the limit is multiplied by
+ *   their ratio (at least by one half), at most once per round trip. A failed call cuts it by 10%.
+ * The limit therefore settles near the concurrency where throughput peaks, instead of piling ever more
+ * requests onto a slowing upstream, while random jitter that does not depend on the load leaves it alone.
+ *
+ * Calls over the limit wait in a FIFO queue for at most maxQueueWait. When the queue is full, or a call has
+ * waited too long, it fails fast with a {@link RejectedException} without reaching the upstream.
+ */
+public class ConcurrencyLimiter
+{
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    // The number of samples the moving average roughly covers
+    private static final int SMOOTHING_SAMPLES = 50;
+    // The baseline is the lowest smoothed latency of BASELINE_BLOCKS blocks of BASELINE_BLOCK_SAMPLES samples
+    private static final int BASELINE_BLOCKS = 10;
+    private static final int BASELINE_BLOCK_SAMPLES = 100;
+
+    /**
+     * Signals that a call was not sent because the limiter's queue was full or the wait for a permit timed out.
+     */
+    public static class RejectedException extends RuntimeException
+    {
+        public RejectedException(String message)
+        {
+            super(message);
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueued;
+    private final Duration maxQueueWait;
+
+    private double limit;
+    private int inFlight;
+    private final ArrayDeque<Permit> queue = new ArrayDeque<>();
+    private double smoothedRttNanos;
+    private long samples;
+    // The lowest smoothed latency of each block, in a ring; the current block is at blockIndex
+    private final double[] blockMinNanos = new double[BASELINE_BLOCKS];
+    private int blockIndex;
+    private int blockSamples;
+    private long lastDecreaseNanos;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param initialLimit The number of calls allowed in flight before any latency has been measured
+     * @param minLimit     The limit never drops below this
+     * @param maxLimit     The limit never grows above this
+     * @param maxQueued    The number of calls that may wait for a permit; further calls are rejected
+     * @param maxQueueWait How long a call may wait for a permit before it is rejected
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueued, Duration maxQueueWait)
+    {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit)
+        {
+            throw new IllegalArgumentException("expected 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueued = maxQueued;
+        this.maxQueueWait = maxQueueWait;
+    }
+
+    /**
+     * Returns a Mono that waits for a permit before subscribing to the call, and releases it when the call ends.
+     * Use it with transform(limiter::limit).
+     *
+     * @param call The call to limit; it is only subscribed to once a permit is granted
+     * @return The limited call, failing with a RejectedException if no permit could be obtained
+     */
+    public <T> Mono<T> limit(Mono<T> call)
+    {
+        return Mono.defer(() ->
+        {
+            var permit = new Permit();
+            return acquire(permit)
+                    .then(Mono.defer(() ->
+                    {
+                        long start = System.nanoTime();
+                        return call.doOnEach(signal ->
+                        {
+                            if (signal.isOnError())
+                            {
+                                permit.sample(System.nanoTime() - start, true);
+                            }
+                            else if (signal.isOnNext() || signal.isOnComplete())
+                            {
+                                permit.sample(System.nanoTime() - start, false);
+                            }
+                        });
+                    }))
+                    .doFinally(signal -> permit.release());
+        });
+    }
+
+    /**
+     * @return The current limit on calls in flight
+     */
+    public synchronized int getLimit()
+    {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight()
+    {
+        return inFlight;
+    }
+
+    public synchronized int getQueued()
+    {
+        return queue.size();
+    }
+
+    /**
+     * @return The number of calls that obtained a permit
+     */
+    public long getAcceptedCount()
+    {
+        return accepted.sum();
+    }
+
+    /**
+     * @return The number of calls rejected because the queue was full or the wait timed out
+     */
+    public long getRejectedCount()
+    {
+        return rejected.sum();
+    }
+
+    /**
+     * @return The number of calls that failed after obtaining a permit; each one cuts the limit
+     */
+    public long getDroppedCount()
+    {
+        return dropped.sum();
+    }
+
+    private Mono<Void> acquire(Permit permit)
+    {
+        synchronized (this)
+        {
+            if (inFlight < (int) limit && queue.isEmpty())
+            {
+                permit.grant();
+                return Mono.empty();
+            }
+            if (queue.size() >= maxQueued)
+            {
+                rejected.increment();
+                return Mono.error(new RejectedException("Concurrency limit " + (int) limit + " reached and " + maxQueued + " calls already queued"));
+            }
+        }
+        return Mono.<Void>create(sink ->
+        {
+            boolean granted;
+            synchronized (this)
+            {
+                permit.sink = sink;
+                granted = inFlight < (int) limit && queue.isEmpty() && permit.grant();
+                if (!granted)
+                {
+                    queue.add(permit);
+                }
+            }
+            if (granted)
+            {
+                sink.success();
+            }
+        })
+                .timeout(maxQueueWait)
+                .onErrorMap(TimeoutException.class, e ->
+                {
+                    rejected.increment();
+                    return new RejectedException("No permit within " + maxQueueWait.toMillis() + "ms");
+                });
+    }
+
+    /**
+     * Hands freed permits to queued calls, skipping those that gave up waiting.
+     */
+    private void dispatch()
+    {
+        while (true)
+        {
+            Permit next;
+            synchronized (this)
+            {
+                do
+                {
+                    next = inFlight < (int) limit ? queue.poll() : null;
+                }
+                while (next != null && !next.grant());
+            }
+            if (next == null)
+            {
+                return;
+            }
+            next.sink.success();
+        }
+    }
+
+    /**
+     * @return true if the limit grew, so that queued calls may be dispatched
+     */
+    private synchronized boolean onSample(long rttNanos, boolean failed)
+    {
+        long now = System.nanoTime();
+        if (failed)
+        {
+            dropped.increment();
+            decrease(now, BACKOFF_RATIO, rttNanos);
+            return false;
+        }
+        // A plain average over the first samples, so the first value does not weigh on the average for long
+        samples++;
+        smoothedRttNanos += (rttNanos - smoothedRttNanos) * Math.max(2.0 / (SMOOTHING_SAMPLES + 1), 1.0 / samples);
+        if (samples < SMOOTHING_SAMPLES)
+        {
+            return false;
+        }
+        double baselineNanos = updateBaseline();
+        double gradient = baselineNanos * LATENCY_TOLERANCE / smoothedRttNanos;
+        if (gradient < 1)
+        {
+            decrease(now, Math.max(MIN_GRADIENT, gradient), (long) smoothedRttNanos);
+            return false;
+        }
+        if (inFlight * 2 >= limit)
+        {
+            int before = (int) limit;
+            // Each of the limit calls of a round trip adds sqrt(limit) / limit
+            limit = Math.min(maxLimit, limit + Math.sqrt(limit) / limit);
+            return (int) limit > before;
+        }
+        return false;
+    }
+
+    /**
+     * Records the smoothed latency in the current block and returns the lowest smoothed latency of all blocks.
+     */
+    private double updateBaseline()
+    {
+        if (blockSamples == BASELINE_BLOCK_SAMPLES)
+        {
+            blockIndex = (blockIndex + 1) % BASELINE_BLOCKS;
+            blockSamples = 0;
+        }
+        if (blockSamples++ == 0 || smoothedRttNanos < blockMinNanos[blockIndex])
+        {
+            blockMinNanos[blockIndex] = smoothedRttNanos;
+        }
+        double baseline = Double.MAX_VALUE;
+        for (double min : blockMinNanos)
+        {
+            if (min > 0)
+            {
+                baseline = Math.min(baseline, min);
+            }
+        }
+        return baseline;
+    }
+
+    private void decrease(long now, double ratio, long rttNanos)
+    {
+        // Many calls in flight see the same congestion; react to it once per round trip
+        if (now - lastDecreaseNanos >= rttNanos)
+        {
+            limit = Math.max(minLimit, limit * ratio);
+            lastDecreaseNanos = now;
+        }
+    }
+
+    /**
+     * One call's claim on the limit: waiting in the queue, holding a permit, or done.
+     */
+    private final class Permit
+    {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int DONE = 2;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private MonoSink<Void> sink;
+        private boolean sampled;
+
+        /**
+         * Takes a slot for this call; must be called while holding the limiter's lock.
+         *
+         * @return false if the call already gave up
+         */
+        private boolean grant()
+        {
+            if (!state.compareAndSet(WAITING, GRANTED))
+            {
+                return false;
+            }
+            inFlight++;
+            accepted.increment();
+            return true;
+        }
+
+        private void sample(long rttNanos, boolean failed)
+        {
+            if (!sampled)
+            {
+                sampled = true;
+                if (onSample(rttNanos, failed))
+                {
+                    dispatch();
+                }
+            }
+        }
+
+        /**
+         * Frees the slot of a granted call, or withdraws a waiting call from the queue.
+         */
+        private void release()
+        {
+            int previous = state.getAndSet(DONE);
+            if (previous == GRANTED)
+            {
+                synchronized (ConcurrencyLimiter.this)
+                {
+                    inFlight--;
+                }
+                dispatch();
+            }
+            else if (previous == WAITING)
+            {
+                synchronized (ConcurrencyLimiter.this)
+                {
+                    queue.remove(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package io.learn.reactiveprogramming.common;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * A fast generator of synthetic names, emails, countries, products and prices for load tests.
+ *
+ * JavaFaker resolves every value through YAML lookups and regular expressions and is not thread-safe,
+ * which makes it the bottleneck of any pipeline that creates records in a hot loop. This generator
+ * picks from small dictionaries loaded once into arrays, so a value costs a random number and
+ * an array read (plus one concatenation for composite values such as full names).
+ *
+ * Randomness:
+ * - {@link #threadLocal()} is shared and safe to use from any thread; each thread draws from its own ThreadLocalRandom.
+ * - {@link #seeded(long)} returns a reproducible generator that must stay on one thread.
+ *   Call {@link #split()} once per worker thread, in a fixed order, to give every thread its own
+ *   reproducible stream derived from the same seed.
+ */
+public class DataGenerator
+{
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+            "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Aarav", "Ananya", "Vivaan", "Diya", "Arjun", "Saanvi", "Rohan", "Isha", "Kabir", "Meera",
+            "Liam", "Olivia", "Noah", "Emma", "Lucas", "Amelia", "Mateo", "Sofia", "Hiro", "Yuki",
+            "Omar", "Layla", "Ahmed", "Fatima", "Chen", "Mei", "Lars", "Ingrid", "Pierre", "Camille"
+    };
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Wilson", "Anderson", "Taylor", "Thomas", "Moore", "Jackson", "Martin", "Lee",
+            "Sharma", "Verma", "Gupta", "Patel", "Singh", "Kumar", "Reddy", "Nair", "Iyer", "Das",
+            "Nguyen", "Kim", "Tanaka", "Sato", "Wang", "Li", "Zhang", "Muller", "Schmidt", "Rossi",
+            "Dubois", "Silva", "Santos", "Kowalski", "Novak", "Hansen", "Jensen", "Ali", "Khan", "Haddad"
+    };
+    private static final String[] EMAIL_DOMAINS = {"gmail.com", "yahoo.com", "hotmail.com"};
+    private static final String[] COUNTRIES = {
+            "India", "United States of America", "China", "Japan", "Germany", "United Kingdom", "France", "Italy",
+            "Brazil", "Canada", "Russian Federation", "Australia", "Spain", "Mexico", "Indonesia", "Netherlands",
+            "Saudi Arabia", "Turkey", "Switzerland", "Poland", "Sweden", "Belgium", "Argentina", "Norway",
+            "Austria", "United Arab Emirates", "Nigeria", "Israel", "South Africa", "Egypt", "Denmark", "Singapore",
+            "Malaysia", "Philippines", "Bangladesh", "Vietnam", "Chile", "Finland", "Colombia", "Pakistan",
+            "Ireland", "Portugal", "New Zealand", "Peru", "Greece", "Qatar", "Kenya", "Nepal", "Sri Lanka", "Bhutan"
+    };
+    private static final String[] DEPARTMENTS = {
+            "Books", "Movies", "Music", "Games", "Electronics", "Computers", "Home", "Garden", "Tools", "Grocery",
+            "Health", "Beauty", "Toys", "Kids", "Baby", "Clothing", "Shoes", "Jewelery", "Sports", "Outdoors",
+            "Automotive", "Industrial"
+    };
+    private static final String[] PRODUCT_ADJECTIVES = {
+            "Small", "Ergonomic", "Rustic", "Intelligent", "Gorgeous", "Incredible", "Fantastic", "Practical",
+            "Sleek", "Awesome", "Enormous", "Mediocre", "Synergistic", "Heavy Duty", "Lightweight", "Aerodynamic", "Durable"
+    };
+    private static final String[] PRODUCT_MATERIALS = {
+            "Steel", "Wooden", "Concrete", "Plastic", "Cotton", "Granite", "Rubber", "Leather", "Silk", "Wool",
+            "Linen", "Marble", "Iron", "Bronze", "Copper", "Aluminum", "Paper"
+    };
+    private static final String[] PRODUCTS = {
+            "Chair", "Car", "Computer", "Gloves", "Pants", "Shirt", "Table", "Shoes", "Hat", "Plate",
+            "Knife", "Bottle", "Coat", "Lamp", "Keyboard", "Bag", "Bench", "Clock", "Watch", "Wallet"
+    };
+    private static final String[] BOOK_GENRES = {
+            "Classic", "Comic/Graphic Novel", "Crime/Detective", "Fable", "Fairy tale", "Fanfiction", "Fantasy",
+            "Fiction narrative", "Fiction in verse", "Folklore", "Historical fiction", "Horror", "Humor", "Legend",
+            "Metafiction", "Mystery", "Mythology", "Mythopoeia", "Realistic fiction", "Science fiction", "Short story",
+            "Suspense/Thriller", "Tall tale", "Western", "Biography/Autobiography", "Essay", "Narrative nonfiction",
+            "Speech", "Textbook", "Reference book"
+    };
+    private static final String[] BOOK_TITLES = {
+            "Absalom, Absalom!", "A Time to Kill", "The House of Mirth", "East of Eden", "The Sun Also Rises",
+            "Vile Bodies", "A Scanner Darkly", "Moab Is My Washpot", "Number the Stars", "Noli Me Tangere",
+            "Brandy of the Damned", "This Side of Paradise", "Dance Dance Dance", "The Moving Finger",
+            "Everything is Illuminated", "Cover Her Face", "The Mirror Crack'd from Side to Side", "Blithe Spirit",
+            "Let Us Now Praise Famous Men", "The Widening Gyre", "Fame Is the Spur", "The Painted Veil",
+            "Those Barren Leaves, Thrones, Dominations", "Tiger! Tiger!", "The Wealth of Nations", "Ring of Bright Water",
+            "Fear and Trembling", "Alone on a Wide, Wide Sea", "The Far-Distant Oxus", "Time of our Darkness"
+    };
+
+    private static final DataGenerator THREAD_LOCAL = new DataGenerator(new RandomGenerator()
+    {
+        @Override
+        public long nextLong()
+        {
+            return ThreadLocalRandom.current().nextLong();
+        }
+
+        @Override
+        public int nextInt(int origin, int bound)
+        {
+            return ThreadLocalRandom.current().nextInt(origin, bound);
+        }
+    });
+
+    private final RandomGenerator random;
+
+    /**
+     * Creates a generator drawing from the given source of randomness.
+     *
+     * @param random The source of randomness; it is used without synchronization
+     */
+    public DataGenerator(RandomGenerator random)
+    {
+        this.random = random;
+    }
+
+    /**
+     * @return The shared generator backed by the calling thread's ThreadLocalRandom
+     */
+    public static DataGenerator threadLocal()
+    {
+        return THREAD_LOCAL;
+    }
+
+    /**
+     * Creates a reproducible generator. Two generators with the same seed produce the same values in the same order.
+     *
+     * @param seed The seed
+     * @return A new generator that must only be used from one thread at a time
+     */
+    public static DataGenerator seeded(long seed)
+    {
+        return new DataGenerator(new SplittableRandom(seed));
+    }
+
+    /**
+     * Derives an independent generator for another thread.
+     * For seeded generators the derived stream is itself reproducible; the shared thread-local generator returns itself.
+     *
+     * @return A generator that can be handed to another thread
+     */
+    public DataGenerator split()
+    {
+        if (random instanceof SplittableRandom splittable)
+        {
+            return new DataGenerator(splittable.split());
+        }
+        return this;
+    }
+
+    public String firstName()
+    {
+        return pick(FIRST_NAMES);
+    }
+
+    public String lastName()
+    {
+        return pick(LAST_NAMES);
+    }
+
+    public String fullName()
+    {
+        return firstName() + " " + lastName();
+    }
+
+    public String email()
+    {
+        return firstName().toLowerCase() + "." + lastName().toLowerCase() + number(1, 999) + "@" + pick(EMAIL_DOMAINS);
+    }
+
+    public String country()
+    {
+        return pick(COUNTRIES);
+    }
+
+    public String department()
+    {
+        return pick(DEPARTMENTS);
+    }
+
+    public String productName()
+    {
+        return pick(PRODUCT_ADJECTIVES) + " " + pick(PRODUCT_MATERIALS) + " " + pick(PRODUCTS);
+    }
+
+    public String bookGenre()
+    {
+        return pick(BOOK_GENRES);
+    }
+
+    public String bookTitle()
+    {
+        return pick(BOOK_TITLES);
+    }
+
+    /**
+     * Returns a random number between min and max, both inclusive, like Faker's random().nextInt(min, max).
+     *
+     * @param min The smallest possible value
+     * @param max The largest possible value
+     * @return A value in [min, max]
+     */
+    public int number(int min, int max)
+    {
+        return random.nextInt(min, max + 1);
+    }
+
+    private String pick(String[] values)
+    {
+        return values[random.nextInt(0, values.length)];
+    }
+}
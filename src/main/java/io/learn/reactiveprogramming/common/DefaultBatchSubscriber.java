@@ -0,0 +1,78 @@
+package io.learn.reactiveprogramming.common;
+
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * The batch counterpart of {@link DefaultSubscriber}.
+ * It logs one line per batch instead of one line per element.
+ *
+ * @param <T> The type of elements contained in each batch
+ */
+public class DefaultBatchSubscriber<T> implements BatchSubscriber<T>
+{
+    // Logger for this class
+    private static final Logger log = LoggerFactory.getLogger(DefaultBatchSubscriber.class);
+
+    // Name of this subscriber instance
+    private final String name;
+
+    /**
+     * Constructs a new DefaultBatchSubscriber with the given name.
+     *
+     * @param name The name to identify this subscriber in logs
+     */
+    public DefaultBatchSubscriber(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Called when the Subscriber is subscribed to a Publisher.
+     * Requests the maximum possible number of batches from the subscription.
+     *
+     * @param subscription The Subscription that allows requesting batches
+     */
+    @Override
+    public void onSubscribe(Subscription subscription)
+    {
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    /**
+     * Called when the Publisher emits a batch.
+     * Logs the batch size together with its first and last element.
+     *
+     * @param batch The batch emitted by the Publisher
+     */
+    @Override
+    public void onNextBatch(List<T> batch)
+    {
+        log.info(" {} received batch of {}: {} .. {}", this.name, batch.size(), batch.getFirst(), batch.getLast());
+    }
+
+    /**
+     * Called when the Publisher encounters an error.
+     * Logs the error.
+     *
+     * @param throwable The error encountered by the Publisher
+     */
+    @Override
+    public void onError(Throwable throwable)
+    {
+        log.error("{} error", this.name, throwable);
+    }
+
+    /**
+     * Called when the Publisher completes its sequence.
+     * Logs the completion event.
+     */
+    @Override
+    public void onComplete()
+    {
+        log.info("{} completed!", this.name);
+    }
+}
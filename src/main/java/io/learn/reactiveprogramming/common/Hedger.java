@@ -0,0 +1,163 @@
+package io.learn.reactiveprogramming.common;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sends a backup request when the primary one is slower than usual, and keeps whichever answers first.
+ *
+ * The hedge delay follows the upstream: the latency of every primary is recorded in a rolling latency
+ * histogram, and the backup is fired once the primary has been running longer than the configured percentile
+ * (for example p95) of recent responses, capped at maxDelay. Only the slowest few percent of requests are
+ * therefore hedged, which cuts tail latency at the cost of a few percent of extra load.
+ * A primary that loses to its backup is cancelled before its latency is known; all that is known is that it was
+ * slower than the hedge delay. Leaving it out, or recording the time until it was cancelled, would make the histogram
+ * forget its tail, and the delay would drift down until nearly every request was hedged. It is recorded as maxDelay
+ * instead: every such sample lies above the delay, so the percentile is still estimated correctly as long as the
+ * delay is below it, and while more than the intended share of requests is hedged the delay rises.
+ *
+ * Whichever request signals first (value, empty completion or error) wins and the other one is cancelled.
+ * At most maxHedgesInFlight backups run at the same time; when the cap is reached, slow requests simply keep
+ * waiting for their primary instead of adding load to an upstream that is already struggling. Such a request
+ * never ends if its primary hangs, so callers should keep a timeout around the hedged Mono.
+ */
+public class Hedger
+{
+    // Samples needed before the measured percentile replaces maxDelay as the hedge delay
+    private static final int MIN_SAMPLES = 100;
+    // Samples after which the histogram starts over, so the delay follows changes in the upstream
+    private static final int WINDOW_SAMPLES = 2_000;
+
+    private final double percentile;
+    private final long maxDelayNanos;
+    private final int maxHedgesInFlight;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long delayNanos;
+    private final AtomicInteger hedgesInFlight = new AtomicInteger();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgesSkipped = new LongAdder();
+
+    /**
+     * @param percentile        The latency percentile, between 0 and 100, after which a backup is sent
+     * @param maxDelay          The longest a primary may run before a backup is sent, and the delay used until enough latencies are known
+     * @param maxHedgesInFlight The maximum number of backups running at the same time
+     */
+    public Hedger(double percentile, Duration maxDelay, int maxHedgesInFlight)
+    {
+        this.percentile = percentile;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxHedgesInFlight = maxHedgesInFlight;
+        this.delayNanos = maxDelayNanos;
+    }
+
+    /**
+     * Returns an operator for transform() that hedges a request with the given backup.
+     *
+     * @param backup The request to send if the primary is slow
+     * @return An operator turning the primary Mono into a hedged Mono
+     */
+    public <T> UnaryOperator<Mono<T>> hedgeWith(Mono<T> backup)
+    {
+        return primary -> hedge(primary, backup);
+    }
+
+    /**
+     * Subscribes to the primary and, if it has not answered within the current hedge delay, to the backup too.
+     *
+     * @param primary The request to send
+     * @param backup  The request to send if the primary is slow
+     * @return A Mono with the first signal of either request
+     */
+    public <T> Mono<T> hedge(Mono<T> primary, Mono<T> backup)
+    {
+        return Mono.defer(() ->
+        {
+            requests.increment();
+            long start = System.nanoTime();
+            long delay = getDelayNanos();
+            var timedPrimary = primary
+                    .doOnSuccess(value -> record(System.nanoTime() - start))
+                    // Cancelled before the delay, the primary tells nothing about the latency
+                    .doOnCancel(() ->
+                    {
+                        if (System.nanoTime() - start >= delay)
+                        {
+                            record(maxDelayNanos);
+                        }
+                    });
+            var delayedBackup = Mono.delay(Duration.ofNanos(delay))
+                    .then(Mono.defer(() ->
+                    {
+                        if (hedgesInFlight.incrementAndGet() > maxHedgesInFlight)
+                        {
+                            hedgesInFlight.decrementAndGet();
+                            hedgesSkipped.increment();
+                            return Mono.<T>never();
+                        }
+                        hedges.increment();
+                        return backup
+                                .doOnNext(value -> hedgeWins.increment())
+                                .doFinally(signal -> hedgesInFlight.decrementAndGet());
+                    }));
+            return Mono.firstWithSignal(timedPrimary, delayedBackup);
+        });
+    }
+
+    /**
+     * @return The current hedge delay in nanoseconds
+     */
+    public synchronized long getDelayNanos()
+    {
+        return delayNanos;
+    }
+
+    public long getRequestCount()
+    {
+        return requests.sum();
+    }
+
+    /**
+     * @return The number of backups sent
+     */
+    public long getHedgeCount()
+    {
+        return hedges.sum();
+    }
+
+    /**
+     * @return The number of backups that answered before their primary
+     */
+    public long getHedgeWinCount()
+    {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * @return The number of backups not sent because maxHedgesInFlight were already running
+     */
+    public long getSkippedHedgeCount()
+    {
+        return hedgesSkipped.sum();
+    }
+
+    private synchronized void record(long latencyNanos)
+    {
+        histogram.record(latencyNanos);
+        if (histogram.count() >= MIN_SAMPLES)
+        {
+            delayNanos = Math.min(histogram.percentile(percentile), maxDelayNanos);
+        }
+        if (histogram.count() >= WINDOW_SAMPLES)
+        {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package io.learn.reactiveprogramming.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates HttpClients that share one event-loop group and one named connection pool.
+ *
+ * Building a new LoopResources per client gives every client its own single I/O thread, so a burst of
+ * concurrent requests is funnelled through one core. A factory instead owns:
+ * - one event-loop group sized to the number of cores, using the native epoll transport when it is available,
+ * - one ConnectionProvider with bounded connections, a bounded queue of pending acquires, idle eviction
+ *   and pool metrics that can be read through {@link #poolMetrics()}.
+ *
+ * Every HttpClient created by the same factory reuses those resources. {@link #shared()} is the factory
+ * behind AbstractHttpClient.createDefaultHttpClient(); use {@link #builder()} to tune a separate one.
+ */
+public class HttpClientFactory
+{
+    private static final Logger log = LoggerFactory.getLogger(HttpClientFactory.class);
+    private static final HttpClientFactory SHARED = builder().build();
+
+    private final String name;
+    private final String baseUrl;
+    private final boolean preferNative;
+    private final LoopResources loopResources;
+    private final ConnectionProvider connectionProvider;
+    private final Map<String, ConnectionPoolMetrics> pools = new ConcurrentHashMap<>();
+
+    private HttpClientFactory(Builder builder)
+    {
+        this.name = builder.name;
+        this.baseUrl = builder.baseUrl;
+        this.preferNative = builder.preferNative;
+        this.loopResources = LoopResources.create(builder.name, builder.workerCount, true);
+        this.connectionProvider = ConnectionProvider.builder(builder.name)
+                .maxConnections(builder.maxConnections)
+                .pendingAcquireMaxCount(builder.pendingAcquireMaxCount)
+                .pendingAcquireTimeout(builder.pendingAcquireTimeout)
+                .maxIdleTime(builder.maxIdleTime)
+                .maxLifeTime(builder.maxLifeTime)
+                .evictInBackground(builder.evictionInterval)
+                .metrics(true, () -> new PoolRegistrar())
+                .build();
+        log.info("{}: {} event loop threads, {} transport, up to {} connections",
+                name, builder.workerCount, isNativeTransport() ? "native" : "NIO", builder.maxConnections);
+    }
+
+    /**
+     * @return The factory used by AbstractHttpClient.createDefaultHttpClient()
+     */
+    public static HttpClientFactory shared()
+    {
+        return SHARED;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Creates a new HttpClient on top of this factory's event loops and connection pool.
+     *
+     * @return A new HttpClient pointing at the configured base URL
+     */
+    public HttpClient create()
+    {
+        return HttpClient.create(connectionProvider)
+                .runOn(loopResources, preferNative)
+                .baseUrl(baseUrl);
+    }
+
+    /**
+     * @return true if the event loops run on the native transport (epoll on Linux) instead of NIO
+     */
+    public boolean isNativeTransport()
+    {
+        return preferNative && LoopResources.hasNativeSupport();
+    }
+
+    /**
+     * Takes a snapshot of every connection pool opened by this factory, one per remote address.
+     *
+     * @return The pool metrics keyed by remote address
+     */
+    public Map<String, PoolStats> poolMetrics()
+    {
+        var snapshot = new TreeMap<String, PoolStats>();
+        pools.forEach((address, metrics) -> snapshot.put(address, new PoolStats(
+                metrics.acquiredSize(),
+                metrics.idleSize(),
+                metrics.allocatedSize(),
+                metrics.pendingAcquireSize(),
+                metrics.maxAllocatedSize(),
+                metrics.maxPendingAcquireSize())));
+        return snapshot;
+    }
+
+    /**
+     * Closes all pooled connections and shuts down the event loops.
+     */
+    public void dispose()
+    {
+        connectionProvider.dispose();
+        loopResources.dispose();
+    }
+
+    /**
+     * A point-in-time view of one connection pool.
+     */
+    public record PoolStats(int acquired, int idle, int allocated, int pendingAcquire, int maxAllocated, int maxPendingAcquire)
+    {
+    }
+
+    /**
+     * Collects the pool metrics reactor-netty hands out, without requiring Micrometer.
+     */
+    private class PoolRegistrar implements ConnectionProvider.MeterRegistrar
+    {
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics)
+        {
+            pools.put(String.valueOf(remoteAddress), metrics);
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress)
+        {
+            pools.remove(String.valueOf(remoteAddress));
+        }
+    }
+
+    /**
+     * Configuration for a HttpClientFactory. The defaults suit the demos against localhost:7070.
+     */
+    public static class Builder
+    {
+        private String name = "http-client";
+        private String baseUrl = "http://localhost:7070";
+        private int workerCount = LoopResources.DEFAULT_IO_WORKER_COUNT;
+        private boolean preferNative = true;
+        private int maxConnections = 500;
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(30);
+
+        private Builder()
+        {
+        }
+
+        /**
+         * Names the event-loop threads and the connection pool.
+         */
+        public Builder name(String name)
+        {
+            this.name = name;
+            return this;
+        }
+
+        public Builder baseUrl(String baseUrl)
+        {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        /**
+         * The number of event-loop threads; defaults to the number of cores (at least 4).
+         */
+        public Builder workerCount(int workerCount)
+        {
+            this.workerCount = workerCount;
+            return this;
+        }
+
+        /**
+         * Whether to use the native transport when it is on the classpath and supported by the OS.
+         */
+        public Builder preferNative(boolean preferNative)
+        {
+            this.preferNative = preferNative;
+            return this;
+        }
+
+        /**
+         * The maximum number of connections per remote address.
+         */
+        public Builder maxConnections(int maxConnections)
+        {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * The maximum number of requests waiting for a connection; further requests fail immediately.
+         */
+        public Builder pendingAcquireMaxCount(int pendingAcquireMaxCount)
+        {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+            return this;
+        }
+
+        /**
+         * How long a request may wait for a connection before failing.
+         */
+        public Builder pendingAcquireTimeout(Duration pendingAcquireTimeout)
+        {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+            return this;
+        }
+
+        /**
+         * How long a connection may stay idle before it is closed.
+         */
+        public Builder maxIdleTime(Duration maxIdleTime)
+        {
+            this.maxIdleTime = maxIdleTime;
+            return this;
+        }
+
+        /**
+         * How long a connection may live in total before it is closed.
+         */
+        public Builder maxLifeTime(Duration maxLifeTime)
+        {
+            this.maxLifeTime = maxLifeTime;
+            return this;
+        }
+
+        /**
+         * How often idle and expired connections are evicted in the background.
+         */
+        public Builder evictionInterval(Duration evictionInterval)
+        {
+            this.evictionInterval = evictionInterval;
+            return this;
+        }
+
+        public HttpClientFactory build()
+        {
+            return new HttpClientFactory(this);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package io.learn.reactiveprogramming.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.ByteProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Decodes a stream of integers straight from Netty ByteBufs, without creating a String per value.
+ *
+ * TCP does not preserve message boundaries: one chunk may hold several values and one value may be split
+ * across two chunks. The decoder therefore keeps the partial frame of the previous chunk and completes it
+ * with the next one. Three framings are supported, see {@link Framing#forContentType(String)}:
+ * - CHUNK:   the legacy stream without a content type, one ASCII decimal value per chunk and no delimiter. The end of a
+ *   chunk ends the value; otherwise it is parsed like NEWLINE, so a chunk may also hold several '\n'-separated values.
+ * - NEWLINE: ASCII decimal values, optionally negative, separated by '\n'. Spaces and a '\r' around a value are
+ *   ignored; a space inside a value, a value outside the int range or any other byte fails with a CorruptedFrameException.
+ *   The last value may omit its newline; {@link #finish(IntConsumer)} emits it when the stream ends.
+ * - INT32:   4-byte big-endian values with no separator.
+ *
+ * The decoder neither retains nor releases the chunks, so it must read each chunk while its owner still holds it:
+ * reactor-netty releases a chunk of responseContent() as soon as onNext returns. The static methods therefore
+ * decode every chunk in the onNext that delivers it.
+ * An instance keeps per-stream state and must only be used for one stream, from one thread at a time.
+ */
+public class IntFrameDecoder
+{
+    private static final String NDJSON = "application/x-ndjson";
+
+    public enum Framing
+    {
+        CHUNK,
+        NEWLINE,
+        INT32;
+
+        /**
+         * Picks the framing a response declares. Newline-delimited values are declared as application/x-ndjson,
+         * which every decimal number per line is; INT32 has no content type and must be chosen explicitly.
+         *
+         * @param contentType The Content-Type header of a response, with or without parameters; may be null
+         * @return NEWLINE for application/x-ndjson, CHUNK for any other or a missing content type
+         */
+        public static Framing forContentType(String contentType)
+        {
+            return contentType != null && contentType.regionMatches(true, 0, NDJSON, 0, NDJSON.length()) ? NEWLINE : CHUNK;
+        }
+    }
+
+    private final Framing framing;
+    private final TextParser textParser = new TextParser();
+    // INT32: the bytes of a value split across chunks, and how many of them have arrived
+    private int partial;
+    private int partialBytes;
+
+    public IntFrameDecoder(Framing framing)
+    {
+        this.framing = framing;
+    }
+
+    /**
+     * Decodes a stream of chunks into boxed values. Prefer {@link #consume(Flux, Framing, IntConsumer)}
+     * on hot paths, as it hands the values over as primitives.
+     *
+     * @param chunks  The stream of chunks, for example responseContent() of a HttpClient response
+     * @param framing How values are delimited
+     * @return A Flux of the decoded values
+     */
+    public static Flux<Integer> decode(Flux<? extends ByteBuf> chunks, Framing framing)
+    {
+        return Flux.defer(() ->
+        {
+            var decoder = new IntFrameDecoder(framing);
+            // map decodes a chunk as it arrives; concatMapIterable would only read it on demand, after it was released
+            return chunks
+                    .map(chunk ->
+                    {
+                        var values = new ArrayList<Integer>();
+                        decoder.decode(chunk, values::add);
+                        return values;
+                    })
+                    .concatMapIterable(Function.identity())
+                    .concatWith(Flux.defer(() ->
+                    {
+                        var values = new ArrayList<Integer>(1);
+                        decoder.finish(values::add);
+                        return Flux.fromIterable(values);
+                    }));
+        });
+    }
+
+    /**
+     * Decodes a stream of chunks and passes every value to the consumer as a primitive int.
+     *
+     * @param chunks   The stream of chunks, for example responseContent() of a HttpClient response
+     * @param framing  How values are delimited
+     * @param consumer Receives the values in order, on the thread delivering the chunks
+     * @return A Mono completing when the stream has been fully decoded
+     */
+    public static Mono<Void> consume(Flux<? extends ByteBuf> chunks, Framing framing, IntConsumer consumer)
+    {
+        return Mono.defer(() ->
+        {
+            var decoder = new IntFrameDecoder(framing);
+            return chunks
+                    .doOnNext(chunk -> decoder.decode(chunk, consumer))
+                    .then(Mono.fromRunnable(() -> decoder.finish(consumer)));
+        });
+    }
+
+    /**
+     * Decodes every complete value in the readable bytes of the chunk and keeps any trailing partial value.
+     *
+     * @param chunk    The next chunk of the stream
+     * @param consumer Receives the decoded values
+     * @throws CorruptedFrameException If a CHUNK or NEWLINE stream holds something other than int values
+     */
+    public void decode(ByteBuf chunk, IntConsumer consumer)
+    {
+        int index = chunk.readerIndex();
+        int end = chunk.writerIndex();
+        if (framing != Framing.INT32)
+        {
+            textParser.consumer = consumer;
+            chunk.forEachByte(index, end - index, textParser);
+            textParser.consumer = null;
+            if (framing == Framing.CHUNK)
+            {
+                textParser.endOfFrame(consumer);
+            }
+            return;
+        }
+        while (partialBytes != 0 && index < end)
+        {
+            partial = (partial << 8) | chunk.getUnsignedByte(index++);
+            if (++partialBytes == Integer.BYTES)
+            {
+                consumer.accept(partial);
+                partial = 0;
+                partialBytes = 0;
+            }
+        }
+        while (end - index >= Integer.BYTES)
+        {
+            consumer.accept(chunk.getInt(index));
+            index += Integer.BYTES;
+        }
+        while (index < end)
+        {
+            partial = (partial << 8) | chunk.getUnsignedByte(index++);
+            partialBytes++;
+        }
+    }
+
+    /**
+     * Signals the end of the stream, emitting a final NEWLINE value that had no trailing newline.
+     *
+     * @param consumer Receives the final value, if any
+     * @throws IllegalStateException If an INT32 stream ended in the middle of a value
+     */
+    public void finish(IntConsumer consumer)
+    {
+        if (framing != Framing.INT32)
+        {
+            textParser.endOfFrame(consumer);
+        }
+        else if (partialBytes != 0)
+        {
+            throw new IllegalStateException("Stream ended with " + partialBytes + " bytes of an incomplete INT32 frame");
+        }
+    }
+
+    /**
+     * Accumulates ASCII digits into an int as the bytes go by; the state survives between chunks.
+     */
+    private static final class TextParser implements ByteProcessor
+    {
+        private IntConsumer consumer;
+        private long value;
+        private boolean negative;
+        private boolean inValue;
+        // A space or '\r' followed the value; only the newline may come next
+        private boolean ended;
+
+        @Override
+        public boolean process(byte b)
+        {
+            if (b >= '0' && b <= '9')
+            {
+                if (ended)
+                {
+                    throw new CorruptedFrameException("Space inside a value in integer stream");
+                }
+                value = value * 10 + (b - '0');
+                if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE))
+                {
+                    throw new CorruptedFrameException("Value does not fit an int in integer stream");
+                }
+                inValue = true;
+            }
+            else if (b == '\n')
+            {
+                endOfFrame(consumer);
+            }
+            else if (b == '-' && !inValue && !negative)
+            {
+                negative = true;
+            }
+            else if (b == ' ' || b == '\r')
+            {
+                ended = inValue || negative;
+            }
+            else
+            {
+                throw new CorruptedFrameException("Unexpected byte 0x" + Integer.toHexString(b & 0xff) + " in integer stream");
+            }
+            return true;
+        }
+
+        private void endOfFrame(IntConsumer consumer)
+        {
+            if (inValue)
+            {
+                consumer.accept((int) (negative ? -value : value));
+            }
+            else if (negative)
+            {
+                throw new CorruptedFrameException("Sign without digits in integer stream");
+            }
+            value = 0;
+            negative = false;
+            inValue = false;
+            ended = false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package io.learn.reactiveprogramming.common;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-memory histogram of non-negative long values, typically latencies in nanoseconds.
+ *
+ * Values are grouped into log-linear buckets: each power of two is split into 16 equal sub-buckets,
+ * so any recorded value is reported with at most about 6% relative error. The whole range of
+ * long fits into fewer than a thousand counters, allocated once up front; recording a value is a
+ * few bit operations and an array increment, with no allocation.
+ *
+ * Instances are not thread-safe. Record and read from a single thread, such as the thread
+ * delivering signals to a Subscriber.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Records one value. Negative values are recorded as zero.
+     *
+     * @param value The value to record
+     */
+    public void record(long value)
+    {
+        var v = Math.max(value, 0);
+        counts[indexOf(v)]++;
+        count++;
+        sum += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Returns an estimate of the value at the given percentile.
+     * The estimate is the upper bound of the bucket holding that percentile, capped at the largest recorded value.
+     *
+     * @param percentile A percentile between 0 and 100
+     * @return The estimated value, or 0 if nothing has been recorded
+     */
+    public long percentile(double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        var rank = (long) Math.ceil(Math.clamp(percentile, 0, 100) / 100 * count);
+        var seen = 0L;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1))
+            {
+                return Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    public long count()
+    {
+        return count;
+    }
+
+    public long min()
+    {
+        return count == 0 ? 0 : min;
+    }
+
+    public long max()
+    {
+        return max;
+    }
+
+    public double mean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Clears all recorded values without releasing memory.
+     */
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    private static int indexOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
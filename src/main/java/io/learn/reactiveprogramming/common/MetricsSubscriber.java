@@ -0,0 +1,128 @@
+package io.learn.reactiveprogramming.common;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.function.ToLongFunction;
+
+/**
+ * A Subscriber that measures a stream instead of logging every element.
+ *
+ * It counts elements and errors, records the time between consecutive elements and, when a
+ * timestamp extractor is given, the end-to-end latency of each element in {@link LatencyHistogram}s.
+ * Nothing is allocated per element, so the pipeline can run at full speed. A summary is logged
+ * at most once per report interval while elements flow, and once more on completion or error.
+ *
+ * @param <T> The type of elements handled by this subscriber
+ */
+public class MetricsSubscriber<T> implements Subscriber<T>
+{
+    private static final Logger log = LoggerFactory.getLogger(MetricsSubscriber.class);
+    private static final Duration DEFAULT_REPORT_INTERVAL = Duration.ofSeconds(5);
+
+    private final String name;
+    private final long reportIntervalNanos;
+    private final ToLongFunction<? super T> timestampExtractor;
+    private final LatencyHistogram interArrival = new LatencyHistogram();
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+    private long subscribedAt;
+    private long lastArrival;
+    private long lastReportAt;
+    private long countAtLastReport;
+    private long elements;
+    private long errors;
+
+    /**
+     * Constructs a MetricsSubscriber that reports every five seconds and does not track end-to-end latency.
+     *
+     * @param name The name to identify this subscriber in the reports
+     */
+    public MetricsSubscriber(String name)
+    {
+        this(name, DEFAULT_REPORT_INTERVAL, null);
+    }
+
+    /**
+     * Constructs a fully configured MetricsSubscriber.
+     *
+     * @param name               The name to identify this subscriber in the reports
+     * @param reportInterval     The minimum time between two periodic reports
+     * @param timestampExtractor Returns the System.nanoTime() at which an element was created,
+     *                           or null to skip end-to-end latency
+     */
+    public MetricsSubscriber(String name, Duration reportInterval, ToLongFunction<? super T> timestampExtractor)
+    {
+        this.name = name;
+        this.reportIntervalNanos = reportInterval.toNanos();
+        this.timestampExtractor = timestampExtractor;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription)
+    {
+        subscribedAt = System.nanoTime();
+        lastArrival = subscribedAt;
+        lastReportAt = subscribedAt;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(T item)
+    {
+        var now = System.nanoTime();
+        elements++;
+        interArrival.record(now - lastArrival);
+        lastArrival = now;
+        if (timestampExtractor != null)
+        {
+            endToEnd.record(now - timestampExtractor.applyAsLong(item));
+        }
+        if (now - lastReportAt >= reportIntervalNanos)
+        {
+            report("running", now);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+        errors++;
+        report("failed", System.nanoTime());
+        log.error("{} error", name, throwable);
+    }
+
+    @Override
+    public void onComplete()
+    {
+        report("completed", System.nanoTime());
+    }
+
+    public long getElements()
+    {
+        return elements;
+    }
+
+    public long getErrors()
+    {
+        return errors;
+    }
+
+    private void report(String state, long now)
+    {
+        var windowNanos = Math.max(now - lastReportAt, 1);
+        var rate = (elements - countAtLastReport) * 1_000_000_000L / windowNanos;
+        var endToEndSummary = timestampExtractor == null
+                ? ""
+                : " endToEnd[p50=" + endToEnd.percentile(50) + "ns p99=" + endToEnd.percentile(99)
+                + "ns max=" + endToEnd.max() + "ns]";
+        log.info("{} {}: elements={} errors={} rate={}/s elapsed={}ms interArrival[p50={}ns p99={}ns max={}ns]{}",
+                name, state, elements, errors, rate, (now - subscribedAt) / 1_000_000,
+                interArrival.percentile(50), interArrival.percentile(99), interArrival.max(),
+                endToEndSummary);
+        lastReportAt = now;
+        countAtLastReport = elements;
+    }
+}
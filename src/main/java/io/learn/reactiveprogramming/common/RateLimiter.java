@@ -0,0 +1,135 @@
+package io.learn.reactiveprogramming.common;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the calls of every caller sharing it under a rate, such as an upstream's quota, with a token bucket.
+ *
+ * The bucket holds up to burst tokens and refills at permitsPerSecond. A call takes one token; while tokens
+ * are left it goes ahead at once, so a quiet client may send a burst. Once the bucket is empty, each call
+ * reserves the next token to be refilled and is subscribed to only when that token arrives.
+ *
+ * Calls are never buffered and never rejected: a call waiting for its token has not been subscribed to yet,
+ * so no request is sent and nothing is requested from upstream until the rate allows it. Over any period t
+ * at most burst + t * permitsPerSecond calls start.
+ */
+public class RateLimiter
+{
+    private final double permitsPerNano;
+    private final double burst;
+
+    // Negative once waiting calls have reserved tokens that are not refilled yet
+    private double tokens;
+    private long refilledAtNanos;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+
+    /**
+     * @param permitsPerSecond The sustained rate of calls
+     * @param burst            The number of calls that may start at once after a quiet period
+     */
+    public RateLimiter(double permitsPerSecond, int burst)
+    {
+        if (permitsPerSecond <= 0 || burst < 1)
+        {
+            throw new IllegalArgumentException("expected permitsPerSecond > 0 and burst >= 1");
+        }
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns a Mono that waits for a token before subscribing to the call.
+     * Use it with transform(rateLimiter::limit); every subscription, including a repeat or a retry, takes a token.
+     *
+     * @param call The call to limit; it is only subscribed to once its token is available
+     * @return The limited call
+     */
+    public <T> Mono<T> limit(Mono<T> call)
+    {
+        return Mono.defer(() ->
+        {
+            long waitNanos = reserve();
+            if (waitNanos == 0)
+            {
+                return call;
+            }
+            delayed.increment();
+            // A call cancelled while waiting hands its token back
+            return Mono.delay(Duration.ofNanos(waitNanos))
+                    .doOnCancel(this::refund)
+                    .then(call);
+        });
+    }
+
+    /**
+     * Releases the elements of a Flux no faster than the rate. Elements are requested from upstream one at a time,
+     * and only once the previous one got its token, so a fast source is slowed down instead of buffered.
+     * Use it with transform(rateLimiter::throttle).
+     *
+     * @param source The elements to release
+     * @return The elements, at most at the rate
+     */
+    public <T> Flux<T> throttle(Flux<T> source)
+    {
+        return source.concatMap(element -> limit(Mono.just(element)), 0);
+    }
+
+    /**
+     * @return The number of calls that took a token
+     */
+    public long getAcquiredCount()
+    {
+        return acquired.sum();
+    }
+
+    /**
+     * @return The number of calls that had to wait for their token
+     */
+    public long getDelayedCount()
+    {
+        return delayed.sum();
+    }
+
+    /**
+     * @return The tokens available now; negative while calls are waiting
+     */
+    public synchronized double getTokens()
+    {
+        refill();
+        return tokens;
+    }
+
+    /**
+     * Takes a token, reserving a future one if the bucket is empty.
+     *
+     * @return How long to wait for the token, 0 if it is available now
+     */
+    private synchronized long reserve()
+    {
+        refill();
+        acquired.increment();
+        tokens--;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / permitsPerNano);
+    }
+
+    private synchronized void refund()
+    {
+        acquired.decrement();
+        tokens++;
+    }
+
+    private void refill()
+    {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAtNanos) * permitsPerNano);
+        refilledAtNanos = now;
+    }
+}
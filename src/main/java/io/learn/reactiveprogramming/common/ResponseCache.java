@@ -0,0 +1,239 @@
+package io.learn.reactiveprogramming.common;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-memory HTTP response cache bounded by a byte budget, used by {@link AbstractHttpClient} when enabled.
+ *
+ * Responses are stored according to their headers:
+ * - Cache-Control: no-store      the response is never stored.
+ * - Cache-Control: max-age=N     the response is served from memory for N seconds without a request.
+ * - Cache-Control: no-cache      the response is stored but revalidated on every use.
+ * - ETag                         once stale, the response is revalidated with If-None-Match; a 304 reply
+ *                                refreshes the stored copy instead of transferring the body again.
+ * A response with neither a max-age nor an ETag cannot be reused, so it is not stored.
+ *
+ * When the stored bodies exceed the byte budget, the least recently used entries are evicted.
+ * All methods are thread-safe.
+ */
+public class ResponseCache
+{
+    // Rough per-entry cost of the key, the entry object and the map node
+    private static final int ENTRY_OVERHEAD = 64;
+    // Longest freshness honoured; a larger max-age would overflow the expiry in nanoseconds
+    private static final long MAX_AGE_SECONDS = Duration.ofDays(365).toSeconds();
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes The approximate number of bytes the stored responses may occupy
+     */
+    public ResponseCache(long maxBytes)
+    {
+        if (maxBytes <= 0)
+        {
+            throw new IllegalArgumentException("maxBytes must be positive but was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A stored response body with its validator and freshness deadline.
+     *
+     * @param body          The response body
+     * @param etag          The ETag to revalidate with, or null
+     * @param expiresAtNanos The System.nanoTime() after which the entry must be revalidated
+     */
+    public record Entry(String body, String etag, long expiresAtNanos)
+    {
+        public boolean isFresh()
+        {
+            return System.nanoTime() - expiresAtNanos < 0;
+        }
+
+        private long size(String key)
+        {
+            return 2L * (key.length() + body.length() + (etag == null ? 0 : etag.length())) + ENTRY_OVERHEAD;
+        }
+    }
+
+    /**
+     * Looks up the stored response for a key, fresh or stale.
+     *
+     * @return The entry, or null if nothing is stored
+     */
+    public synchronized Entry get(String key)
+    {
+        return entries.get(key);
+    }
+
+    /**
+     * Stores a 200 response if its headers allow it to be reused, otherwise removes any stored copy.
+     *
+     * @param key     The cache key, usually the request URI
+     * @param headers The response headers
+     * @param body    The response body
+     */
+    public void store(String key, HttpHeaders headers, String body)
+    {
+        var cacheControl = headers.get(HttpHeaderNames.CACHE_CONTROL, "");
+        var etag = headers.get(HttpHeaderNames.ETAG);
+        var maxAge = maxAge(cacheControl);
+        if (cacheControl.contains("no-store") || (maxAge.isZero() && etag == null))
+        {
+            remove(key);
+            return;
+        }
+        put(key, new Entry(body, etag, System.nanoTime() + maxAge.toNanos()));
+    }
+
+    /**
+     * Handles a 304 reply: keeps the stored body and renews its freshness from the new headers.
+     *
+     * @param key     The cache key
+     * @param stale   The entry that was revalidated
+     * @param headers The headers of the 304 response
+     * @return The refreshed entry
+     */
+    public Entry refresh(String key, Entry stale, HttpHeaders headers)
+    {
+        revalidations.increment();
+        var etag = headers.get(HttpHeaderNames.ETAG, stale.etag());
+        var refreshed = new Entry(stale.body(), etag, System.nanoTime() + maxAge(headers.get(HttpHeaderNames.CACHE_CONTROL, "")).toNanos());
+        put(key, refreshed);
+        return refreshed;
+    }
+
+    public synchronized void remove(String key)
+    {
+        var removed = entries.remove(key);
+        if (removed != null)
+        {
+            usedBytes -= removed.size(key);
+        }
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    void recordHit()
+    {
+        hits.increment();
+    }
+
+    void recordMiss()
+    {
+        misses.increment();
+    }
+
+    /**
+     * @return The number of requests answered from memory without touching the network
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of requests that went to the network, including revalidations
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of 304 replies that refreshed a stored response
+     */
+    public long getRevalidationCount()
+    {
+        return revalidations.sum();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    public synchronized long getUsedBytes()
+    {
+        return usedBytes;
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    private synchronized void put(String key, Entry entry)
+    {
+        long size = entry.size(key);
+        if (size > maxBytes)
+        {
+            remove(key);
+            return;
+        }
+        var previous = entries.put(key, entry);
+        if (previous != null)
+        {
+            usedBytes -= previous.size(key);
+        }
+        usedBytes += size;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext())
+        {
+            var evicted = eldest.next();
+            eldest.remove();
+            usedBytes -= evicted.getValue().size(evicted.getKey());
+            evictions.increment();
+        }
+    }
+
+    /**
+     * @return The max-age directive of a Cache-Control header, capped at a year, or zero if it has none or it is malformed
+     */
+    private static Duration maxAge(String cacheControl)
+    {
+        if (cacheControl.contains("no-cache"))
+        {
+            return Duration.ZERO;
+        }
+        for (var directive : cacheControl.split(","))
+        {
+            directive = directive.trim();
+            if (directive.startsWith("max-age="))
+            {
+                var seconds = directive.substring("max-age=".length());
+                try
+                {
+                    return Duration.ofSeconds(Math.clamp(Long.parseLong(seconds), 0, MAX_AGE_SECONDS));
+                }
+                catch (NumberFormatException e)
+                {
+                    // Too many digits for a long is still a valid, just very long, max-age
+                    return !seconds.isEmpty() && seconds.chars().allMatch(c -> c >= '0' && c <= '9')
+                            ? Duration.ofSeconds(MAX_AGE_SECONDS)
+                            : Duration.ZERO;
+                }
+            }
+        }
+        return Duration.ZERO;
+    }
+}
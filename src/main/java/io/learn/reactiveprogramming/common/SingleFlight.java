@@ -0,0 +1,100 @@
+package io.learn.reactiveprogramming.common;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into a single in-flight call.
+ *
+ * The first subscriber for a key (the leader) starts the call; every subscriber that arrives while it is
+ * still running joins it and receives the same value, empty completion or error. Once the call terminates
+ * the key is released, so the next subscriber starts a fresh call. Nothing is cached beyond the flight.
+ *
+ * Cancellation is safe: the shared call keeps running while at least one subscriber is waiting for it,
+ * and is only cancelled when the last one cancels.
+ *
+ * @param <K> The type of the keys identifying identical calls
+ * @param <V> The type of the value produced by a call
+ */
+public class SingleFlight<K, V>
+{
+    private final ConcurrentHashMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Returns a Mono that, on subscription, joins the call in flight for the key or starts a new one.
+     *
+     * @param key  The key identifying identical calls, for example the request URI
+     * @param call Creates the call to run when no call for the key is in flight
+     * @return A Mono emitting the result of the shared call
+     */
+    public Mono<V> execute(K key, Supplier<? extends Mono<V>> call)
+    {
+        return Mono.defer(() ->
+        {
+            requests.increment();
+            var existing = inFlight.get(key);
+            if (existing == null)
+            {
+                var flight = flight(key, call);
+                existing = inFlight.putIfAbsent(key, flight);
+                if (existing == null)
+                {
+                    executions.increment();
+                    return flight;
+                }
+            }
+            collapsed.increment();
+            return existing;
+        });
+    }
+
+    /**
+     * @return The number of subscriptions made through {@link #execute}
+     */
+    public long getRequestCount()
+    {
+        return requests.sum();
+    }
+
+    /**
+     * @return The number of calls actually started
+     */
+    public long getExecutionCount()
+    {
+        return executions.sum();
+    }
+
+    /**
+     * @return The number of subscriptions that joined a call already in flight instead of starting one
+     */
+    public long getCollapsedCount()
+    {
+        return collapsed.sum();
+    }
+
+    /**
+     * @return The number of keys with a call currently in flight
+     */
+    public int getInFlightCount()
+    {
+        return inFlight.size();
+    }
+
+    private Mono<V> flight(K key, Supplier<? extends Mono<V>> call)
+    {
+        var self = new AtomicReference<Mono<V>>();
+        // Remove only this flight, never a newer one that replaced it for the same key
+        Mono<V> flight = Mono.defer(call)
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .share();
+        self.set(flight);
+        return flight;
+    }
+}
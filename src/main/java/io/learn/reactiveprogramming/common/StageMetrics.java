@@ -0,0 +1,269 @@
+package io.learn.reactiveprogramming.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters for one named stage of a reactive pipeline, registered as a JMX MBean.
+ *
+ * A stage is whatever {@link Util#fluxLogger(String)} is applied to. All subscriptions of a stage with the
+ * same name share one instance, so a stage that is subscribed many times (for example one per request)
+ * still shows up as a single MBean. Counters are LongAdders, so recording from many threads stays cheap.
+ *
+ * Outstanding demand is reported as Long.MAX_VALUE while any subscriber has requested an unbounded amount.
+ *
+ * Stages live as long as the JVM, so stage names must come from a fixed set, never from request data such as a user ID.
+ * As a safety net, only the first MAX_STAGES names are registered; further names get metrics that are not exported.
+ */
+public class StageMetrics implements StageMetricsMBean
+{
+    private static final Logger log = LoggerFactory.getLogger(StageMetrics.class);
+    private static final String DOMAIN = "io.learn.reactiveprogramming";
+    private static final int MAX_STAGES = 256;
+    private static final Map<String, StageMetrics> STAGES = new ConcurrentHashMap<>();
+    private static final AtomicBoolean STAGE_LIMIT_WARNED = new AtomicBoolean();
+
+    private final String name;
+    private final LongAdder subscriptions = new LongAdder();
+    private final AtomicInteger activeSubscriptions = new AtomicInteger();
+    private final LongAdder elements = new LongAdder();
+    private final LongAdder boundedOutstanding = new LongAdder();
+    private final AtomicInteger unboundedSubscriptions = new AtomicInteger();
+    private final LongAdder cancellations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder completions = new LongAdder();
+    private final AtomicLong lastTimeToFirstElementNanos = new AtomicLong();
+    private final AtomicLong maxTimeToFirstElementNanos = new AtomicLong();
+    // Previous sample for the elements-per-second rate, guarded by this
+    private long sampledElements;
+    private long sampledAtNanos = System.nanoTime();
+
+    private StageMetrics(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the metrics for the given stage name, creating and registering the MBean on first use.
+     *
+     * @param name The stage name
+     * @return The shared metrics instance for that name, or an unregistered one once MAX_STAGES names are known
+     */
+    public static StageMetrics forStage(String name)
+    {
+        var metrics = STAGES.get(name);
+        if (metrics != null)
+        {
+            return metrics;
+        }
+        if (STAGES.size() >= MAX_STAGES)
+        {
+            if (STAGE_LIMIT_WARNED.compareAndSet(false, true))
+            {
+                log.warn("more than {} stage names, stage {} and later ones are not registered with JMX", MAX_STAGES, name);
+            }
+            return new StageMetrics(name);
+        }
+        return STAGES.computeIfAbsent(name, StageMetrics::register);
+    }
+
+    private static StageMetrics register(String name)
+    {
+        var metrics = new StageMetrics(name);
+        try
+        {
+            var objectName = new ObjectName(DOMAIN + ":type=Stage,name=" + ObjectName.quote(name));
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(objectName))
+            {
+                server.registerMBean(metrics, objectName);
+            }
+        }
+        catch (JMException e)
+        {
+            log.warn("could not register stage {} with JMX", name, e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Creates the recorder for one subscription. Each subscription tracks its own demand and first-element timing.
+     */
+    Recorder recorder()
+    {
+        return new Recorder();
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public long getSubscriptions()
+    {
+        return subscriptions.sum();
+    }
+
+    @Override
+    public int getActiveSubscriptions()
+    {
+        return activeSubscriptions.get();
+    }
+
+    @Override
+    public long getElements()
+    {
+        return elements.sum();
+    }
+
+    /**
+     * The average rate since the previous call of this method, so a JMX console polling at a fixed interval sees the current rate.
+     */
+    @Override
+    public synchronized double getElementsPerSecond()
+    {
+        var now = System.nanoTime();
+        var count = elements.sum();
+        var rate = (count - sampledElements) * 1_000_000_000.0 / Math.max(now - sampledAtNanos, 1);
+        sampledElements = count;
+        sampledAtNanos = now;
+        return rate;
+    }
+
+    @Override
+    public long getOutstandingDemand()
+    {
+        return unboundedSubscriptions.get() > 0 ? Long.MAX_VALUE : boundedOutstanding.sum();
+    }
+
+    @Override
+    public long getCancellations()
+    {
+        return cancellations.sum();
+    }
+
+    @Override
+    public long getErrors()
+    {
+        return errors.sum();
+    }
+
+    @Override
+    public long getCompletions()
+    {
+        return completions.sum();
+    }
+
+    @Override
+    public long getLastTimeToFirstElementMillis()
+    {
+        return lastTimeToFirstElementNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public long getMaxTimeToFirstElementMillis()
+    {
+        return maxTimeToFirstElementNanos.get() / 1_000_000;
+    }
+
+    /**
+     * Recorder for a single subscription to the stage. Signals for one subscription are serialized,
+     * except for requests and cancellation, which may come from any thread.
+     */
+    class Recorder
+    {
+        private final AtomicLong outstanding = new AtomicLong();
+        private volatile boolean unbounded;
+        private volatile boolean finished;
+        private long subscribedAtNanos;
+        private boolean sawFirstElement;
+
+        void onSubscribe()
+        {
+            subscribedAtNanos = System.nanoTime();
+            subscriptions.increment();
+            activeSubscriptions.incrementAndGet();
+        }
+
+        synchronized void onRequest(long n)
+        {
+            if (unbounded || finished)
+            {
+                return;
+            }
+            if (n == Long.MAX_VALUE)
+            {
+                unbounded = true;
+                unboundedSubscriptions.incrementAndGet();
+                boundedOutstanding.add(-outstanding.getAndSet(0));
+                return;
+            }
+            outstanding.addAndGet(n);
+            boundedOutstanding.add(n);
+        }
+
+        void onNext()
+        {
+            elements.increment();
+            if (!unbounded && outstanding.getAndDecrement() > 0)
+            {
+                boundedOutstanding.decrement();
+            }
+            if (!sawFirstElement)
+            {
+                sawFirstElement = true;
+                var elapsed = System.nanoTime() - subscribedAtNanos;
+                lastTimeToFirstElementNanos.set(elapsed);
+                maxTimeToFirstElementNanos.accumulateAndGet(elapsed, Math::max);
+            }
+        }
+
+        void onCancel()
+        {
+            cancellations.increment();
+            finish();
+        }
+
+        void onError()
+        {
+            errors.increment();
+            finish();
+        }
+
+        void onComplete()
+        {
+            completions.increment();
+            finish();
+        }
+
+        private synchronized void finish()
+        {
+            if (finished)
+            {
+                return;
+            }
+            finished = true;
+            activeSubscriptions.decrementAndGet();
+            if (unbounded)
+            {
+                unboundedSubscriptions.decrementAndGet();
+            }
+            else
+            {
+                boundedOutstanding.add(-outstanding.getAndSet(0));
+            }
+        }
+    }
+}
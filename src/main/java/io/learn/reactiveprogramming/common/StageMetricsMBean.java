@@ -0,0 +1,30 @@
+package io.learn.reactiveprogramming.common;
+
+/**
+ * The JMX view of a {@link StageMetrics}.
+ * Attributes show up in JConsole or VisualVM under io.learn.reactiveprogramming:type=Stage.
+ */
+public interface StageMetricsMBean
+{
+    String getName();
+
+    long getSubscriptions();
+
+    int getActiveSubscriptions();
+
+    long getElements();
+
+    double getElementsPerSecond();
+
+    long getOutstandingDemand();
+
+    long getCancellations();
+
+    long getErrors();
+
+    long getCompletions();
+
+    long getLastTimeToFirstElementMillis();
+
+    long getMaxTimeToFirstElementMillis();
+}
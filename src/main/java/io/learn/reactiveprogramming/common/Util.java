@@ -8,6 +8,9 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 
 /**
@@ -20,6 +23,11 @@ public class Util
     // Static instance of Faker for generating fake data
     private static Faker faker = Faker.instance();
 
+    // System property that seeds data() for reproducible runs, for example -Dreactiveprogramming.data.seed=42
+    public static final String DATA_SEED_PROPERTY = "reactiveprogramming.data.seed";
+    // Per-thread seeded generators, or null while data() uses the unseeded thread-local generator
+    private static volatile ThreadLocal<DataGenerator> seededData = seededData(Long.getLong(DATA_SEED_PROPERTY));
+
     /**
      * Creates a new DefaultSubscriber with an empty name.
      *
@@ -43,6 +51,60 @@ public class Util
         return new DefaultSubscriber<>(name);
     }
 
+    /**
+     * Creates a new MetricsSubscriber with the specified name.
+     * Use it instead of subscriber(name) when per-element logging would dominate the measurement.
+     *
+     * @param <T> The type of elements the subscriber will receive
+     * @param name The name to be assigned to the subscriber
+     * @return A new MetricsSubscriber instance with the given name
+     */
+    public static <T> MetricsSubscriber<T> metricsSubscriber(String name)
+    {
+        return new MetricsSubscriber<>(name);
+    }
+
+    /**
+     * Creates a new MetricsSubscriber that also records end-to-end latency.
+     *
+     * @param <T> The type of elements the subscriber will receive
+     * @param name The name to be assigned to the subscriber
+     * @param reportInterval The minimum time between two periodic reports
+     * @param timestampExtractor Returns the System.nanoTime() at which an element was created
+     * @return A new MetricsSubscriber instance with the given name
+     */
+    public static <T> MetricsSubscriber<T> metricsSubscriber(String name, Duration reportInterval, ToLongFunction<? super T> timestampExtractor)
+    {
+        return new MetricsSubscriber<>(name, reportInterval, timestampExtractor);
+    }
+
+    /**
+     * Creates a new DefaultBatchSubscriber with the specified name.
+     *
+     * @param <T> The type of elements in each batch
+     * @param name The name to be assigned to the subscriber
+     * @return A new DefaultBatchSubscriber instance with the given name
+     */
+    public static <T> BatchSubscriber<T> batchSubscriber(String name)
+    {
+        return new DefaultBatchSubscriber<>(name);
+    }
+
+    /**
+     * Packs a Flux into batches for a {@link BatchSubscriber}.
+     * A batch is emitted when it reaches maxSize elements or when maxWait has passed since its first element,
+     * whichever comes first. Upstream demand follows the batches requested downstream.
+     *
+     * @param <T> The type of elements in the Flux
+     * @param maxSize The largest number of elements in one batch
+     * @param maxWait The longest time an element waits for its batch to fill up
+     * @return A function to be used with Flux.transform
+     */
+    public static <T> Function<Flux<T>, Flux<List<T>>> batched(int maxSize, Duration maxWait)
+    {
+        return flux -> flux.bufferTimeout(maxSize, maxWait, true);
+    }
+
     /**
      * Main method demonstrating the use of subscribers with a Mono.
      *
@@ -66,6 +128,49 @@ public class Util
         return faker;
     }
 
+    /**
+     * Provides the fast synthetic data generator for hot paths such as load tests.
+     * It is backed by per-thread randomness and safe to call from any thread.
+     * Unless a seed is set with {@link #setDataSeed(Long)} or the {@value #DATA_SEED_PROPERTY} system property,
+     * the values differ from run to run.
+     *
+     * @return The calling thread's DataGenerator
+     */
+    public static DataGenerator data()
+    {
+        var seeded = seededData;
+        return seeded == null ? DataGenerator.threadLocal() : seeded.get();
+    }
+
+    /**
+     * Makes data() reproducible. Every thread gets its own generator, split from one seeded generator the first
+     * time the thread calls data(), so a run repeats exactly as long as threads first ask for data in the same order;
+     * a single-threaded run always does.
+     *
+     * @param seed The seed, or null to go back to unseeded randomness
+     */
+    public static void setDataSeed(Long seed)
+    {
+        seededData = seededData(seed);
+    }
+
+    private static ThreadLocal<DataGenerator> seededData(Long seed)
+    {
+        if (seed == null)
+        {
+            return null;
+        }
+        var root = DataGenerator.seeded(seed);
+        return ThreadLocal.withInitial(() ->
+        {
+            // The root is not thread-safe, and splitting advances it
+            synchronized (root)
+            {
+                return root.split();
+            }
+        });
+    }
+
     /**
      * Utility method to pause execution for a specified number of seconds.
      *
@@ -96,12 +201,41 @@ public class Util
         }
     }
 
+    /**
+     * Logs the lifecycle of a stage and records its metrics in a {@link StageMetrics} MBean named after the stage.
+     * The MBean exposes elements per second, outstanding demand, cancellations, errors and the time from subscribe
+     * to the first element, so a slow stage can be spotted from a JMX console without a profiler.
+     *
+     * @param <T> The type of elements in the Flux
+     * @param name The stage name, used in the logs and as the MBean name
+     * @return A function to be used with Flux.transform
+     */
     public static <T> UnaryOperator<Flux<T>> fluxLogger(String name)
     {
-        return flux -> flux
-                .doOnSubscribe(s -> log.info("{} subscribed", name))
-                .doOnCancel(() -> log.info("{} cancelled", name))
-                .doOnComplete(() -> log.info("{} completed", name));
+        var metrics = StageMetrics.forStage(name);
+        return flux -> Flux.defer(() ->
+        {
+            var stage = metrics.recorder();
+            return flux
+                    .doOnSubscribe(s ->
+                    {
+                        stage.onSubscribe();
+                        log.info("{} subscribed", name);
+                    })
+                    .doOnRequest(stage::onRequest)
+                    .doOnNext(item -> stage.onNext())
+                    .doOnError(err -> stage.onError())
+                    .doOnCancel(() ->
+                    {
+                        stage.onCancel();
+                        log.info("{} cancelled", name);
+                    })
+                    .doOnComplete(() ->
+                    {
+                        stage.onComplete();
+                        log.info("{} completed", name);
+                    });
+        });
     }
 
 }
@@ -11,9 +11,9 @@ public class IndianAirline
 
     public static Flux<Flight> getFlights()
     {
-        return Flux.range(1, Util.faker().random().nextInt(2, 10))
-                .delayElements(Duration.ofMillis(Util.faker().random().nextInt(100, 1000)))
-                .map(i -> new Flight( AIRLINE, Util.faker().random().nextInt(5000, 100000)))
+        return Flux.range(1, Util.data().number(2, 10))
+                .delayElements(Duration.ofMillis(Util.data().number(100, 1000)))
+                .map(i -> new Flight( AIRLINE, Util.data().number(5000, 100000)))
                 .transform(Util.fluxLogger(AIRLINE));
     }
 }
@@ -1,5 +1,6 @@
 package io.learn.reactiveprogramming.flightinfoexample;
 
+import io.learn.reactiveprogramming.common.Util;
 import reactor.core.publisher.Flux;
 
 import java.time.Duration;
@@ -13,6 +14,7 @@ public class Udaan
                         Emirates.getFlights(),
                         Qatar.getFlights()
                 )
-                .take(Duration.ofSeconds(2));
+                .take(Duration.ofSeconds(2))
+                .transform(Util.fluxLogger("Udaan"));
     }
 }
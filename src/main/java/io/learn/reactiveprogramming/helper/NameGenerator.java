@@ -45,7 +45,7 @@ public class NameGenerator
         {
             log.info("generating name");
             Util.sleepSeconds(1);
-            var name = Util.faker().name().fullName();
+            var name = Util.data().fullName();
             redisCache.add(name);
             sink.next(name);
         })
@@ -61,7 +61,7 @@ public class NameGenerator
     private static String generateName()
     {
         Util.sleepSeconds(1); // Simulate a blocking I/O operation by sleeping for 1 second
-        return Util.faker().name().fullName(); // Generate a random full name using the Faker library
+        return Util.data().fullName(); // Generate a random full name from the synthetic data dictionaries
     }
 
 
@@ -32,8 +32,8 @@ public class NameProducer implements Consumer<FluxSink<String>>
      */
     public void produce()
     {
-        // Generate a random full name using the Faker utility
-        String name = Util.faker().name().fullName();
+        // Generate a random full name using the synthetic data generator
+        String name = Util.data().fullName();
         // Emit the generated name to the FluxSink
         stringFluxSink.next(name);
     }
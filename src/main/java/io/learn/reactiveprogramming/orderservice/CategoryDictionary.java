@@ -0,0 +1,113 @@
+package io.learn.reactiveprogramming.orderservice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Turns the bytes of a category name into a String constant, creating each distinct String only once.
+ *
+ * An order stream repeats a handful of categories millions of times. Decoding each occurrence into a
+ * new String would allocate per order and leave every consumer comparing equal but distinct Strings.
+ * The dictionary is an open-addressing hash table over the raw bytes: a known category costs a hash
+ * and a byte comparison and returns the String created the first time it was seen.
+ *
+ * Once maxEntries categories are known, new ones are still decoded correctly but no longer remembered,
+ * so a stream of unexpected values cannot grow the dictionary without bound.
+ * An instance is not thread-safe; each stream decoder owns one.
+ */
+public class CategoryDictionary
+{
+    private final int maxEntries;
+    private byte[][] keys;
+    private String[] values;
+    private int size;
+
+    public CategoryDictionary()
+    {
+        this(256);
+    }
+
+    /**
+     * @param maxEntries The number of distinct categories remembered
+     */
+    public CategoryDictionary(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+        this.keys = new byte[32][];
+        this.values = new String[32];
+    }
+
+    /**
+     * @param bytes  A buffer holding the UTF-8 bytes of a category name from index 0
+     * @param length The number of bytes of the name
+     * @return The String for the name, the same instance every time the same bytes are passed
+     */
+    public String intern(byte[] bytes, int length)
+    {
+        int hash = hash(bytes, length);
+        int mask = keys.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask)
+        {
+            var key = keys[slot];
+            if (key == null)
+            {
+                var value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                if (size < maxEntries)
+                {
+                    keys[slot] = Arrays.copyOf(bytes, length);
+                    values[slot] = value;
+                    if (++size * 2 > keys.length)
+                    {
+                        grow();
+                    }
+                }
+                return value;
+            }
+            if (key.length == length && Arrays.equals(key, 0, length, bytes, 0, length))
+            {
+                return values[slot];
+            }
+        }
+    }
+
+    /**
+     * @return The number of distinct categories remembered
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    private void grow()
+    {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new byte[oldKeys.length * 2][];
+        values = new String[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != null)
+            {
+                int slot = hash(oldKeys[i], oldKeys[i].length) & mask;
+                while (keys[slot] != null)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(byte[] bytes, int length)
+    {
+        int hash = 0;
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + bytes[i];
+        }
+        // Spread the high bits into the low bits used to pick a slot
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,197 @@
+package io.learn.reactiveprogramming.orderservice;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A running total per category that many threads may update at once while others read it.
+ *
+ * Each category has a LongAdder, which spreads concurrent additions over striped cells instead of making
+ * every ingest thread contend on one value. Updates never lock: a known category costs a map lookup and
+ * an add, and a new category is created once with computeIfAbsent.
+ *
+ * Readers get a {@link #snapshot()}: a sorted, immutable copy that does not change under them. A snapshot
+ * never blocks writers. It is taken optimistically: writers count the updates they start and finish, and a
+ * copy taken while no update was in flight is consistent across all categories. When ingest is so busy that
+ * no such moment occurs within a few attempts, the last copy is returned; each of its totals is then exact
+ * for some instant during the copy.
+ *
+ * {@link #changes()} publishes what changed instead of everything: an update marks its category as changed,
+ * and every tick emits the totals of only the categories marked since the previous tick, so the work per
+ * tick follows the rate of change rather than the number of categories. A tick without changes emits nothing.
+ */
+public class CategoryTotals
+{
+    private static final int MAX_SNAPSHOT_ATTEMPTS = 8;
+
+    /**
+     * The totals of some or all categories.
+     *
+     * @param version Increases with every tick that had changes; a full update carries the version it is current as of
+     * @param full    Whether totals holds every category, or only those changed since the previous version
+     * @param totals  The current totals of the categories, sorted by category
+     */
+    public record Update(long version, boolean full, Map<String, Long> totals)
+    {
+    }
+
+    private final long initialValue;
+    private final ConcurrentHashMap<String, Total> totals = new ConcurrentHashMap<>();
+    private final LongAdder updatesStarted = new LongAdder();
+    private final LongAdder updatesFinished = new LongAdder();
+
+    // The categories updated since the last tick, each queued once
+    private final ConcurrentLinkedQueue<Total> changed = new ConcurrentLinkedQueue<>();
+    private long version;
+    private final Flux<Update> ticks;
+
+    /**
+     * @param initialValue The total of a category before its first update, for example the starting stock
+     * @param tickInterval How often {@link #changes()} publishes the changed categories
+     */
+    public CategoryTotals(long initialValue, Duration tickInterval)
+    {
+        this.initialValue = initialValue;
+        // One ticker drains the changes for every subscriber; the last update is replayed to late subscribers,
+        // who drop it unless their full update is older
+        this.ticks = Flux.interval(tickInterval)
+                .<Update>handle((tick, sink) ->
+                {
+                    var update = drainChanges();
+                    if (update != null)
+                    {
+                        sink.next(update);
+                    }
+                })
+                .replay(1)
+                .refCount();
+    }
+
+    /**
+     * Adds delta to the total of the category. Safe to call from any number of threads.
+     *
+     * @param category The category
+     * @param delta    The amount to add, negative to subtract
+     */
+    public void add(String category, long delta)
+    {
+        updatesStarted.increment();
+        var total = totals.get(category);
+        if (total == null)
+        {
+            total = totals.computeIfAbsent(category, Total::new);
+        }
+        total.sum.add(delta);
+        // Only the first update since the last tick queues the category; the others just read the flag
+        if (!total.changed.get() && total.changed.compareAndSet(false, true))
+        {
+            changed.offer(total);
+        }
+        updatesFinished.increment();
+    }
+
+    /**
+     * @param category The category
+     * @return The current total of the category
+     */
+    public long get(String category)
+    {
+        var total = totals.get(category);
+        return total == null ? initialValue : initialValue + total.sum.sum();
+    }
+
+    /**
+     * @return An immutable copy of every category's total, sorted by category
+     */
+    public Map<String, Long> snapshot()
+    {
+        TreeMap<String, Long> copy;
+        int attempts = 0;
+        while (true)
+        {
+            // Both counters only grow: if as many updates had finished before the copy as had started after it,
+            // none was in flight or began while copying
+            long finished = updatesFinished.sum();
+            copy = new TreeMap<>();
+            for (var entry : totals.entrySet())
+            {
+                copy.put(entry.getKey(), initialValue + entry.getValue().sum.sum());
+            }
+            if (updatesStarted.sum() == finished || ++attempts == MAX_SNAPSHOT_ATTEMPTS)
+            {
+                return Collections.unmodifiableMap(copy);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Streams the totals as they change. A subscriber first receives a full update with every category,
+     * then, every tick that had changes, an update with the current totals of only the changed categories.
+     * Updates carry totals, not increments, so applying a category that the full update already had is harmless.
+     *
+     * @return A Flux of updates, starting with a full one
+     */
+    public Flux<Update> changes()
+    {
+        return Flux.defer(() ->
+        {
+            var full = fullUpdate();
+            return ticks
+                    .filter(update -> update.version() > full.version())
+                    .startWith(full);
+        });
+    }
+
+    private synchronized Update fullUpdate()
+    {
+        return new Update(version, true, snapshot());
+    }
+
+    /**
+     * @return The totals of the categories changed since the last call, or null if none changed
+     */
+    private synchronized Update drainChanges()
+    {
+        TreeMap<String, Long> changes = null;
+        Total total;
+        // A category is queued at most once, so this bounds the drain even while writers keep re-queuing categories
+        for (int remaining = totals.size(); remaining > 0 && (total = changed.poll()) != null; remaining--)
+        {
+            // Clear the flag before reading, so an update racing with the read queues the category again
+            total.changed.set(false);
+            if (changes == null)
+            {
+                changes = new TreeMap<>();
+            }
+            changes.put(total.category, initialValue + total.sum.sum());
+        }
+        return changes == null ? null : new Update(++version, false, Collections.unmodifiableMap(changes));
+    }
+
+    @Override
+    public String toString()
+    {
+        return snapshot().toString();
+    }
+
+    private static final class Total
+    {
+        private final String category;
+        private final LongAdder sum = new LongAdder();
+        private final AtomicBoolean changed = new AtomicBoolean();
+
+        private Total(String category)
+        {
+            this.category = category;
+        }
+    }
+}
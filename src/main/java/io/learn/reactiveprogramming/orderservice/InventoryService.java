@@ -3,26 +3,21 @@ package io.learn.reactiveprogramming.orderservice;
 import reactor.core.publisher.Flux;
 
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
 
 public class InventoryService implements OrderProcessor
 {
-    private final Map<String, Integer> db = new HashMap<>();
+    // Stock per category, starting at 500; updated from any number of ingest threads, changes published every 2 seconds
+    private final CategoryTotals inventory = new CategoryTotals(500, Duration.ofSeconds(2));
 
     @Override
     public void consume(Order order)
     {
-        var currentInventory = db.getOrDefault(order.category(), 500);
-        var updatedInventory = currentInventory - order.quantity();
-        db.put(order.category(), updatedInventory);
-
+        inventory.add(order.category(), -order.quantity());
     }
 
     @Override
-    public Flux<String> stream()
+    public Flux<CategoryTotals.Update> changes()
     {
-        return Flux.interval(Duration.ofSeconds(2))
-                .map(i -> this.db.toString());
+        return inventory.changes();
     }
 }
@@ -2,9 +2,30 @@ package io.learn.reactiveprogramming.orderservice;
 
 import reactor.core.publisher.Flux;
 
+import java.util.List;
+
 public interface OrderProcessor
 {
     void consume(Order order);
 
-    Flux<String> stream();
+    /**
+     * Consumes a batch of orders in one call, as delivered by Util.batched.
+     */
+    default void consumeBatch(List<Order> orders)
+    {
+        for (var order : orders)
+        {
+            consume(order);
+        }
+    }
+
+    /**
+     * A full update with every category, followed by updates holding only the categories that changed.
+     */
+    Flux<CategoryTotals.Update> changes();
+
+    default Flux<String> stream()
+    {
+        return changes().map(CategoryTotals.Update::toString);
+    }
 }
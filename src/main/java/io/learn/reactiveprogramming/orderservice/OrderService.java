@@ -1,6 +1,9 @@
 package io.learn.reactiveprogramming.orderservice;
 
 import io.learn.reactiveprogramming.common.AbstractHttpClient;
+import io.learn.reactiveprogramming.common.Util;
+import io.learn.reactiveprogramming.publisher.RingBufferPublisher;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
@@ -11,6 +14,9 @@ import java.util.Objects;
 public class OrderService extends AbstractHttpClient
 {
     private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+    private static final int ORDER_BUFFER_SIZE = 1024;
+    private static final String ACCEPTED_ORDER_FORMATS = OrderStreamDecoder.Format.NDJSON.contentType() + ", "
+            + OrderStreamDecoder.Format.SSE.contentType() + ";q=0.9, " + OrderStreamDecoder.Format.TEXT.contentType() + ";q=0.5";
     private Flux<Order> orderFlux;
 
     /**
@@ -33,26 +39,27 @@ public class OrderService extends AbstractHttpClient
         return this.orderFlux;
     }
 
+    /**
+     * Streams orders from the upstream and multicasts them through a single ring buffer.
+     * The HTTP stream is opened once two subscribers (inventory and revenue) have arrived,
+     * and is backpressured by whichever of them is slowest. It is closed when the last subscriber cancels,
+     * and opened again by the next two.
+     */
     public Flux<Order> getOrderStream()
     {
-        return this.httpClient.get()
+        var orders = this.httpClient
+                .headers(headers -> headers.set(HttpHeaderNames.ACCEPT, ACCEPTED_ORDER_FORMATS))
+                .get()
                 .uri("/demo04/orders/stream")
-                .responseContent()
-                .asString()
-                .map(this::parseOrder)
+                .response((response, body) ->
+                {
+                    // Orders are framed and parsed straight from the ByteBufs; without a known content type
+                    // the server is taken to send one colon-separated order per chunk
+                    var format = OrderStreamDecoder.Format.forContentType(response.responseHeaders().get(HttpHeaderNames.CONTENT_TYPE));
+                    return OrderStreamDecoder.decode(body, format);
+                })
                 .doOnNext(o -> log.info("{}", o))
-                .publish()
-                .refCount(2);
-    }
-
-    private Order parseOrder(String message)
-    {
-        // Implementation to parse the order string and create an Order object
-        var arr = message.split(":");
-        return new Order(
-                arr[1],
-                Integer.parseInt(arr[2]),
-                Integer.parseInt(arr[3])
-        );
+                .transform(Util.fluxLogger("order-stream"));
+        return Flux.from(new RingBufferPublisher<>(orders, 2, ORDER_BUFFER_SIZE, RingBufferPublisher.LagStrategy.BLOCK));
     }
 }
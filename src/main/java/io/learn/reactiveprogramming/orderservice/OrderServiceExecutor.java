@@ -3,8 +3,13 @@ package io.learn.reactiveprogramming.orderservice;
 import io.learn.reactiveprogramming.common.AbstractHttpClient;
 import io.learn.reactiveprogramming.common.Util;
 
+import java.time.Duration;
+
 public class OrderServiceExecutor
 {
+    private static final int ORDER_BATCH_SIZE = 256;
+    private static final Duration ORDER_BATCH_WAIT = Duration.ofMillis(100);
+
     public static void main(String[] args)
     {
         var orderService = new OrderService(AbstractHttpClient.createDefaultHttpClient());
@@ -13,9 +18,11 @@ public class OrderServiceExecutor
 
 
         orderService.orderStream()
-                .subscribe(inventoryService::consume);
+                .transform(Util.batched(ORDER_BATCH_SIZE, ORDER_BATCH_WAIT))
+                .subscribe(inventoryService::consumeBatch);
         orderService.orderStream()
-                .subscribe(revenueService::consume);
+                .transform(Util.batched(ORDER_BATCH_SIZE, ORDER_BATCH_WAIT))
+                .subscribe(revenueService::consumeBatch);
 
         inventoryService.stream().subscribe(Util.subscriber("inventory"));
         revenueService.stream().subscribe(Util.subscriber("revenue"));
@@ -0,0 +1,987 @@
+package io.learn.reactiveprogramming.orderservice;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.ByteProcessor;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Decodes a stream of orders straight from Netty ByteBufs, one byte at a time, without building a String per message.
+ *
+ * TCP does not preserve message boundaries, so a chunk may hold several orders or end in the middle of one.
+ * The decoder is a state machine that keeps its position between chunks; every byte is looked at once.
+ * Four formats are supported, chosen from the response's Content-Type with {@link Format#forContentType(String)}:
+ * - NDJSON: one JSON object per line, for example {"orderId":7,"category":"Books","price":42,"quantity":3}
+ * - SSE:    Server-Sent Events whose data lines carry such a JSON object; an event ends with a blank line.
+ *           Comments and fields other than data are skipped, and the data lines of one event are joined.
+ * - TEXT:   one "orderId:category:price:quantity" line per order. The last line may omit its newline;
+ *           {@link #finish(Consumer)} emits it when the stream ends.
+ * - CHUNK:  the legacy stream without a content type, one "orderId:category:price:quantity" order per chunk and no
+ *           newline. A chunk split by the transport is continued by the next one, also inside the quantity: an order
+ *           is emitted once the next chunk starts with "id:", or when the stream ends.
+ *
+ * The JSON objects must be flat as far as category, price and quantity are concerned: price and quantity are
+ * integers, category a string. Other fields, including nested objects and arrays, are skipped.
+ * Malformed input fails with a CorruptedFrameException, a category longer than 1024 bytes with a TooLongFrameException.
+ *
+ * Apart from the Order itself nothing is allocated per order: integers are accumulated digit by digit, and the
+ * bytes of a category are collected in a reused buffer and turned into a String constant by a {@link CategoryDictionary}.
+ *
+ * The decoder neither retains nor releases the chunks, so it must read each chunk while its owner still holds it:
+ * reactor-netty releases a chunk of responseContent() as soon as onNext returns. {@link #decode(Flux, Format)}
+ * therefore decodes every chunk in the onNext that delivers it, and only queues the decoded orders.
+ * An instance keeps per-stream state and must only be used for one stream, from one thread at a time.
+ */
+public class OrderStreamDecoder
+{
+    private static final int MAX_STRING_BYTES = 1024;
+
+    public enum Format
+    {
+        NDJSON("application/x-ndjson"),
+        SSE("text/event-stream"),
+        TEXT("text/plain"),
+        CHUNK(null);
+
+        private final String contentType;
+
+        Format(String contentType)
+        {
+            this.contentType = contentType;
+        }
+
+        /**
+         * @return The content type of the format, or null for CHUNK, which is sent without one
+         */
+        public String contentType()
+        {
+            return contentType;
+        }
+
+        /**
+         * @param contentType The Content-Type header of a response, with or without parameters
+         * @return The matching format, or CHUNK if there is no content type or it is not one of them
+         */
+        public static Format forContentType(String contentType)
+        {
+            if (contentType == null)
+            {
+                return CHUNK;
+            }
+            for (var format : values())
+            {
+                if (format.contentType != null && contentType.regionMatches(true, 0, format.contentType, 0, format.contentType.length()))
+                {
+                    return format;
+                }
+            }
+            return CHUNK;
+        }
+    }
+
+    private final CategoryDictionary categories = new CategoryDictionary();
+    private final JsonOrderParser json = new JsonOrderParser();
+    private final Framer framer;
+    private Consumer<? super Order> consumer;
+
+    // The bytes of the category being decoded, UTF-8 encoded
+    private byte[] category = new byte[64];
+    private int categoryLength;
+
+    public OrderStreamDecoder(Format format)
+    {
+        this.framer = switch (format)
+        {
+            case NDJSON -> new NdjsonFramer();
+            case SSE -> new SseFramer();
+            case TEXT -> new TextFramer(false);
+            case CHUNK -> new TextFramer(true);
+        };
+    }
+
+    /**
+     * Decodes a stream of chunks into orders.
+     *
+     * @param chunks The stream of chunks, for example the body of a HttpClient response
+     * @param format How the orders are framed
+     * @return A Flux of the decoded orders
+     */
+    public static Flux<Order> decode(Flux<? extends ByteBuf> chunks, Format format)
+    {
+        return Flux.defer(() ->
+        {
+            var decoder = new OrderStreamDecoder(format);
+            // map decodes a chunk as it arrives; concatMapIterable would only read it on demand, after it was released
+            return chunks
+                    .map(chunk ->
+                    {
+                        var orders = new ArrayList<Order>();
+                        decoder.decode(chunk, orders::add);
+                        return orders;
+                    })
+                    .concatMapIterable(Function.identity())
+                    .concatWith(Flux.defer(() ->
+                    {
+                        var orders = new ArrayList<Order>(1);
+                        decoder.finish(orders::add);
+                        return Flux.fromIterable(orders);
+                    }));
+        });
+    }
+
+    /**
+     * Decodes every complete order in the readable bytes of the chunk and keeps the state of a trailing partial one.
+     *
+     * @param chunk    The next chunk of the stream
+     * @param consumer Receives the decoded orders
+     * @throws CorruptedFrameException If the stream is not valid for its format
+     */
+    public void decode(ByteBuf chunk, Consumer<? super Order> consumer)
+    {
+        this.consumer = consumer;
+        try
+        {
+            chunk.forEachByte(chunk.readerIndex(), chunk.readableBytes(), framer);
+            framer.endOfChunk();
+        }
+        finally
+        {
+            this.consumer = null;
+        }
+    }
+
+    /**
+     * Signals the end of the stream, emitting a final TEXT order that had no trailing newline.
+     *
+     * @param consumer Receives the final order, if any
+     * @throws IllegalStateException If the stream ended in the middle of an order
+     */
+    public void finish(Consumer<? super Order> consumer)
+    {
+        this.consumer = consumer;
+        try
+        {
+            framer.finish();
+        }
+        finally
+        {
+            this.consumer = null;
+        }
+    }
+
+    /**
+     * @return The categories seen so far, each decoded into a String only once
+     */
+    public CategoryDictionary getCategories()
+    {
+        return categories;
+    }
+
+    private void appendCategory(byte b)
+    {
+        if (categoryLength == category.length)
+        {
+            if (categoryLength == MAX_STRING_BYTES)
+            {
+                throw new TooLongFrameException("Category exceeds " + MAX_STRING_BYTES + " bytes");
+            }
+            category = Arrays.copyOf(category, Math.min(MAX_STRING_BYTES, categoryLength * 2));
+        }
+        category[categoryLength++] = b;
+    }
+
+    private interface Framer extends ByteProcessor
+    {
+        default void endOfChunk()
+        {
+        }
+
+        void finish();
+    }
+
+    /**
+     * TEXT: "orderId:category:price:quantity" lines. The order ID is checked but not kept.
+     * CHUNK: the same, except that the end of a chunk may also end the order. As the quantity is the last field,
+     * a chunk ending in its digits does not tell whether the transport split the number; the order is therefore only
+     * ended once the next chunk shows that its leading digits are the next order's ID, because a ':' follows them.
+     * Digits that run to the end of that chunk, or to a newline, continue the quantity instead.
+     */
+    private final class TextFramer implements Framer
+    {
+        private static final int ORDER_ID = 0;
+        private static final int CATEGORY = 1;
+        private static final int PRICE = 2;
+        private static final int QUANTITY = 3;
+
+        private int field = ORDER_ID;
+        private long value;
+        private boolean negative;
+        private boolean hasDigits;
+        private boolean empty = true;
+        private int price;
+        private final boolean orderPerChunk;
+        // CHUNK: a chunk ended inside the quantity; the digits after it either continue it or start the next order's ID
+        private boolean orderMayEnd;
+        private long leadValue;
+        private int leadDigits;
+
+        private TextFramer(boolean orderPerChunk)
+        {
+            this.orderPerChunk = orderPerChunk;
+        }
+
+        @Override
+        public boolean process(byte b)
+        {
+            if (orderMayEnd)
+            {
+                if (b >= '0' && b <= '9')
+                {
+                    leadValue = appendDigit(leadValue, b, false);
+                    leadDigits++;
+                    return true;
+                }
+                if (b == ':' && leadDigits != 0)
+                {
+                    // The previous chunk held a whole order, and the digits so far are the next order's ID
+                    orderMayEnd = false;
+                    endOfLine();
+                    value = leadValue;
+                    hasDigits = true;
+                    empty = false;
+                    leadValue = 0;
+                    leadDigits = 0;
+                }
+                else
+                {
+                    continueQuantity();
+                }
+            }
+            if (b == '\n')
+            {
+                endOfLine();
+                return true;
+            }
+            if (b == '\r')
+            {
+                return true;
+            }
+            empty = false;
+            if (b == ':')
+            {
+                endOfField();
+            }
+            else if (field == CATEGORY)
+            {
+                appendCategory(b);
+            }
+            else if (b >= '0' && b <= '9')
+            {
+                value = appendDigit(value, b, negative);
+                hasDigits = true;
+            }
+            else if (b == '-' && !hasDigits && !negative && field != ORDER_ID)
+            {
+                negative = true;
+            }
+            else
+            {
+                throw new CorruptedFrameException("Unexpected byte 0x" + Integer.toHexString(b & 0xff) + " in order stream");
+            }
+            return true;
+        }
+
+        @Override
+        public void endOfChunk()
+        {
+            if (!orderPerChunk)
+            {
+                return;
+            }
+            if (orderMayEnd)
+            {
+                // The whole chunk was digits, so it continued the quantity, which may go on in the next chunk too
+                continueQuantity();
+                orderMayEnd = true;
+            }
+            else if (field == QUANTITY && hasDigits)
+            {
+                orderMayEnd = true;
+            }
+        }
+
+        @Override
+        public void finish()
+        {
+            if (orderMayEnd)
+            {
+                continueQuantity();
+            }
+            endOfLine();
+        }
+
+        /**
+         * Appends the digits that followed the chunk boundary to the quantity.
+         */
+        private void continueQuantity()
+        {
+            for (int i = 0; i < leadDigits; i++)
+            {
+                value = appendDigit(value, (byte) '0', negative);
+            }
+            value += leadValue;
+            if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE))
+            {
+                throw new CorruptedFrameException("Value does not fit an int in order stream");
+            }
+            orderMayEnd = false;
+            leadValue = 0;
+            leadDigits = 0;
+        }
+
+        private void endOfField()
+        {
+            if (field == ORDER_ID || field == PRICE)
+            {
+                if (!hasDigits)
+                {
+                    throw new CorruptedFrameException("Order without " + (field == ORDER_ID ? "ID" : "price"));
+                }
+                if (field == PRICE)
+                {
+                    price = (int) (negative ? -value : value);
+                }
+            }
+            else if (field == QUANTITY)
+            {
+                throw new CorruptedFrameException("Order with more than four fields");
+            }
+            field++;
+            value = 0;
+            negative = false;
+            hasDigits = false;
+        }
+
+        private void endOfLine()
+        {
+            if (!empty)
+            {
+                if (field != QUANTITY || !hasDigits)
+                {
+                    throw new CorruptedFrameException("Order without category, price or quantity");
+                }
+                consumer.accept(new Order(categories.intern(category, categoryLength), price, (int) (negative ? -value : value)));
+            }
+            field = ORDER_ID;
+            value = 0;
+            negative = false;
+            hasDigits = false;
+            empty = true;
+            categoryLength = 0;
+        }
+    }
+
+    /**
+     * @return The magnitude with the digit appended
+     * @throws CorruptedFrameException If the value no longer fits an int
+     */
+    private static long appendDigit(long magnitude, byte digit, boolean negative)
+    {
+        long next = magnitude * 10 + (digit - '0');
+        if (next > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE))
+        {
+            throw new CorruptedFrameException("Value does not fit an int in order stream");
+        }
+        return next;
+    }
+
+    /**
+     * NDJSON: every line holds one object; blank lines are allowed.
+     */
+    private final class NdjsonFramer implements Framer
+    {
+        @Override
+        public boolean process(byte b)
+        {
+            if (b == '\n')
+            {
+                json.endOfFrame();
+            }
+            else
+            {
+                json.accept(b);
+            }
+            return true;
+        }
+
+        @Override
+        public void finish()
+        {
+            json.finish();
+        }
+    }
+
+    /**
+     * SSE: lines are "field: value"; the values of data lines make up the event's JSON object, and a blank line ends the event.
+     */
+    private final class SseFramer implements Framer
+    {
+        private static final byte[] DATA = {'d', 'a', 't', 'a'};
+        private static final int FIELD = 0;
+        private static final int DATA_START = 1;
+        private static final int DATA_VALUE = 2;
+        private static final int SKIP_LINE = 3;
+
+        private int state = FIELD;
+        private int fieldLength;
+        private boolean fieldIsData = true;
+
+        @Override
+        public boolean process(byte b)
+        {
+            if (b == '\n')
+            {
+                endOfLine();
+                return true;
+            }
+            if (b == '\r')
+            {
+                return true;
+            }
+            switch (state)
+            {
+                case FIELD ->
+                {
+                    if (b == ':')
+                    {
+                        // A line starting with ':' is a comment
+                        state = fieldLength == DATA.length && fieldIsData ? DATA_START : SKIP_LINE;
+                    }
+                    else
+                    {
+                        fieldIsData &= fieldLength < DATA.length && DATA[fieldLength] == b;
+                        fieldLength++;
+                    }
+                }
+                case DATA_START ->
+                {
+                    // A single space after the colon is not part of the value
+                    state = DATA_VALUE;
+                    if (b != ' ')
+                    {
+                        json.accept(b);
+                    }
+                }
+                case DATA_VALUE -> json.accept(b);
+                default ->
+                {
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void finish()
+        {
+            json.finish();
+        }
+
+        private void endOfLine()
+        {
+            if (state == FIELD && fieldLength == 0)
+            {
+                json.endOfFrame();
+            }
+            else if (state != FIELD && state != SKIP_LINE)
+            {
+                // The data lines of an event are joined by a newline, which JSON treats as whitespace
+                json.accept((byte) '\n');
+            }
+            state = FIELD;
+            fieldLength = 0;
+            fieldIsData = true;
+        }
+    }
+
+    /**
+     * An incremental parser for one JSON object per frame, fed a byte at a time; the state survives between chunks.
+     */
+    private final class JsonOrderParser
+    {
+        private static final byte[] CATEGORY = "category".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] PRICE = "price".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] QUANTITY = "quantity".getBytes(StandardCharsets.US_ASCII);
+        private static final int MAX_KEY_BYTES = 16;
+
+        private enum State
+        {
+            BEFORE_OBJECT, BEFORE_KEY, IN_KEY, AFTER_KEY, BEFORE_VALUE,
+            IN_STRING, IN_ESCAPE, IN_UNICODE, IN_NUMBER, IN_LITERAL, IN_NESTED, AFTER_VALUE, AFTER_OBJECT
+        }
+
+        private enum Field
+        {
+            CATEGORY, PRICE, QUANTITY, OTHER
+        }
+
+        private State state = State.BEFORE_OBJECT;
+
+        private final byte[] key = new byte[MAX_KEY_BYTES];
+        private int keyLength;
+        private Field field;
+
+        private int unicode;
+        private int unicodeDigits;
+        private int highSurrogate;
+
+        private long number;
+        private boolean negative;
+        private boolean hasDigits;
+
+        // IN_NESTED: the depth of the skipped value, and whether a string inside it is open
+        private int depth;
+        private boolean nestedString;
+        private boolean nestedEscape;
+
+        private String categoryValue;
+        private int price;
+        private int quantity;
+        private boolean hasPrice;
+        private boolean hasQuantity;
+
+        private boolean isBetweenObjects()
+        {
+            return state == State.BEFORE_OBJECT || state == State.AFTER_OBJECT;
+        }
+
+        private void finish()
+        {
+            if (!isBetweenObjects())
+            {
+                throw new IllegalStateException("Stream ended in the middle of an order");
+            }
+        }
+
+        private void endOfFrame()
+        {
+            if (!isBetweenObjects())
+            {
+                throw new CorruptedFrameException("Message ended in the middle of an order");
+            }
+            state = State.BEFORE_OBJECT;
+        }
+
+        private void accept(byte b)
+        {
+            switch (state)
+            {
+                case BEFORE_OBJECT ->
+                {
+                    if (b == '{')
+                    {
+                        categoryValue = null;
+                        hasPrice = false;
+                        hasQuantity = false;
+                        state = State.BEFORE_KEY;
+                    }
+                    else if (!isWhitespace(b))
+                    {
+                        throw unexpected(b);
+                    }
+                }
+                case BEFORE_KEY ->
+                {
+                    if (b == '"')
+                    {
+                        keyLength = 0;
+                        state = State.IN_KEY;
+                    }
+                    else if (b == '}')
+                    {
+                        complete();
+                    }
+                    else if (!isWhitespace(b))
+                    {
+                        throw unexpected(b);
+                    }
+                }
+                case IN_KEY ->
+                {
+                    if (b == '"')
+                    {
+                        field = matchKey();
+                        state = State.AFTER_KEY;
+                    }
+                    else if (keyLength < MAX_KEY_BYTES && b != '\\')
+                    {
+                        key[keyLength++] = b;
+                    }
+                    else if (b == '\\')
+                    {
+                        // An escaped key is not one of ours; skip it like a string inside a nested value
+                        field = Field.OTHER;
+                        depth = 0;
+                        nestedString = true;
+                        nestedEscape = true;
+                        state = State.IN_NESTED;
+                    }
+                    else
+                    {
+                        // Too long to be one of ours
+                        keyLength = MAX_KEY_BYTES + 1;
+                    }
+                }
+                case AFTER_KEY ->
+                {
+                    if (b == ':')
+                    {
+                        state = State.BEFORE_VALUE;
+                    }
+                    else if (!isWhitespace(b))
+                    {
+                        throw unexpected(b);
+                    }
+                }
+                case BEFORE_VALUE -> startValue(b);
+                case IN_STRING ->
+                {
+                    if (b == '"')
+                    {
+                        endString();
+                    }
+                    else if (b == '\\')
+                    {
+                        state = State.IN_ESCAPE;
+                    }
+                    else
+                    {
+                        appendString(b);
+                    }
+                }
+                case IN_ESCAPE -> escape(b);
+                case IN_UNICODE -> unicodeDigit(b);
+                case IN_NUMBER ->
+                {
+                    if (b >= '0' && b <= '9')
+                    {
+                        numberDigit(b);
+                    }
+                    else if (b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-')
+                    {
+                        if (field != Field.OTHER)
+                        {
+                            throw new CorruptedFrameException("Expected an integer for " + field.name().toLowerCase());
+                        }
+                    }
+                    else
+                    {
+                        endNumber();
+                        afterValue(b);
+                    }
+                }
+                case IN_LITERAL ->
+                {
+                    if (b < 'a' || b > 'z')
+                    {
+                        afterValue(b);
+                    }
+                }
+                case IN_NESTED -> skipNested(b);
+                case AFTER_VALUE -> afterValue(b);
+                case AFTER_OBJECT ->
+                {
+                    if (!isWhitespace(b))
+                    {
+                        throw unexpected(b);
+                    }
+                }
+            }
+        }
+
+        private void startValue(byte b)
+        {
+            if (b == '"')
+            {
+                categoryLength = 0;
+                highSurrogate = 0;
+                state = State.IN_STRING;
+            }
+            else if (b == '-' || (b >= '0' && b <= '9'))
+            {
+                number = 0;
+                negative = b == '-';
+                hasDigits = false;
+                state = State.IN_NUMBER;
+                if (!negative)
+                {
+                    numberDigit(b);
+                }
+            }
+            else if (b == '{' || b == '[')
+            {
+                rejectForOrderField("an object or array");
+                depth = 1;
+                nestedString = false;
+                nestedEscape = false;
+                state = State.IN_NESTED;
+            }
+            else if (b >= 'a' && b <= 'z')
+            {
+                // true, false or null
+                rejectForOrderField("a literal");
+                state = State.IN_LITERAL;
+            }
+            else if (!isWhitespace(b))
+            {
+                throw unexpected(b);
+            }
+        }
+
+        private void afterValue(byte b)
+        {
+            state = State.AFTER_VALUE;
+            if (b == ',')
+            {
+                state = State.BEFORE_KEY;
+            }
+            else if (b == '}')
+            {
+                complete();
+            }
+            else if (!isWhitespace(b))
+            {
+                throw unexpected(b);
+            }
+        }
+
+        private void complete()
+        {
+            if (categoryValue == null || !hasPrice || !hasQuantity)
+            {
+                throw new CorruptedFrameException("Order without category, price or quantity");
+            }
+            state = State.AFTER_OBJECT;
+            consumer.accept(new Order(categoryValue, price, quantity));
+        }
+
+        private Field matchKey()
+        {
+            if (matches(CATEGORY))
+            {
+                return Field.CATEGORY;
+            }
+            if (matches(PRICE))
+            {
+                return Field.PRICE;
+            }
+            if (matches(QUANTITY))
+            {
+                return Field.QUANTITY;
+            }
+            return Field.OTHER;
+        }
+
+        private boolean matches(byte[] name)
+        {
+            return keyLength == name.length && Arrays.equals(key, 0, keyLength, name, 0, name.length);
+        }
+
+        private void rejectForOrderField(String found)
+        {
+            if (field != Field.OTHER)
+            {
+                throw new CorruptedFrameException("Unexpected " + found + " for " + field.name().toLowerCase());
+            }
+        }
+
+        private void numberDigit(byte b)
+        {
+            hasDigits = true;
+            number = number * 10 + (b - '0');
+            if (number > Integer.MAX_VALUE && field != Field.OTHER)
+            {
+                throw new CorruptedFrameException("Value of " + field.name().toLowerCase() + " does not fit an int");
+            }
+            else if (number > Integer.MAX_VALUE)
+            {
+                number = Integer.MAX_VALUE;
+            }
+        }
+
+        private void endNumber()
+        {
+            if (!hasDigits)
+            {
+                throw new CorruptedFrameException("Number without digits");
+            }
+            int value = (int) (negative ? -number : number);
+            switch (field)
+            {
+                case PRICE ->
+                {
+                    price = value;
+                    hasPrice = true;
+                }
+                case QUANTITY ->
+                {
+                    quantity = value;
+                    hasQuantity = true;
+                }
+                case CATEGORY -> throw new CorruptedFrameException("Expected a string for category");
+                default ->
+                {
+                }
+            }
+        }
+
+        private void endString()
+        {
+            if (field == Field.CATEGORY)
+            {
+                categoryValue = categories.intern(category, categoryLength);
+            }
+            else if (field != Field.OTHER)
+            {
+                throw new CorruptedFrameException("Expected an integer for " + field.name().toLowerCase());
+            }
+            state = State.AFTER_VALUE;
+        }
+
+        private void escape(byte b)
+        {
+            state = State.IN_STRING;
+            switch (b)
+            {
+                case '"', '\\', '/' -> appendString(b);
+                case 'b' -> appendString((byte) '\b');
+                case 'f' -> appendString((byte) '\f');
+                case 'n' -> appendString((byte) '\n');
+                case 'r' -> appendString((byte) '\r');
+                case 't' -> appendString((byte) '\t');
+                case 'u' ->
+                {
+                    unicode = 0;
+                    unicodeDigits = 0;
+                    state = State.IN_UNICODE;
+                }
+                default -> throw unexpected(b);
+            }
+        }
+
+        private void unicodeDigit(byte b)
+        {
+            int digit = Character.digit(b, 16);
+            if (digit < 0)
+            {
+                throw unexpected(b);
+            }
+            unicode = (unicode << 4) | digit;
+            if (++unicodeDigits < 4)
+            {
+                return;
+            }
+            state = State.IN_STRING;
+            if (Character.isHighSurrogate((char) unicode))
+            {
+                highSurrogate = unicode;
+            }
+            else if (Character.isLowSurrogate((char) unicode) && highSurrogate != 0)
+            {
+                appendCodePoint(Character.toCodePoint((char) highSurrogate, (char) unicode));
+                highSurrogate = 0;
+            }
+            else
+            {
+                appendCodePoint(unicode);
+            }
+        }
+
+        private void appendCodePoint(int codePoint)
+        {
+            if (codePoint < 0x80)
+            {
+                appendString((byte) codePoint);
+            }
+            else if (codePoint < 0x800)
+            {
+                appendString((byte) (0xC0 | codePoint >> 6));
+                appendString((byte) (0x80 | codePoint & 0x3F));
+            }
+            else if (codePoint < 0x10000)
+            {
+                appendString((byte) (0xE0 | codePoint >> 12));
+                appendString((byte) (0x80 | codePoint >> 6 & 0x3F));
+                appendString((byte) (0x80 | codePoint & 0x3F));
+            }
+            else
+            {
+                appendString((byte) (0xF0 | codePoint >> 18));
+                appendString((byte) (0x80 | codePoint >> 12 & 0x3F));
+                appendString((byte) (0x80 | codePoint >> 6 & 0x3F));
+                appendString((byte) (0x80 | codePoint & 0x3F));
+            }
+        }
+
+        private void appendString(byte b)
+        {
+            // Only the category is kept; other strings are just scanned
+            if (field == Field.CATEGORY)
+            {
+                appendCategory(b);
+            }
+        }
+
+        private void skipNested(byte b)
+        {
+            if (nestedEscape)
+            {
+                nestedEscape = false;
+            }
+            else if (nestedString)
+            {
+                if (b == '\\')
+                {
+                    nestedEscape = true;
+                }
+                else if (b == '"')
+                {
+                    nestedString = false;
+                    if (depth == 0)
+                    {
+                        // The end of a skipped key
+                        state = State.AFTER_KEY;
+                    }
+                }
+            }
+            else if (b == '"')
+            {
+                nestedString = true;
+            }
+            else if (b == '{' || b == '[')
+            {
+                depth++;
+            }
+            else if ((b == '}' || b == ']') && --depth == 0)
+            {
+                state = State.AFTER_VALUE;
+            }
+        }
+
+        private static boolean isWhitespace(byte b)
+        {
+            return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+        }
+
+        private static CorruptedFrameException unexpected(byte b)
+        {
+            return new CorruptedFrameException("Unexpected byte 0x" + Integer.toHexString(b & 0xff) + " in order stream");
+        }
+    }
+}
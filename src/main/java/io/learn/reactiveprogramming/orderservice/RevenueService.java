@@ -3,26 +3,21 @@ package io.learn.reactiveprogramming.orderservice;
 import reactor.core.publisher.Flux;
 
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
 
 public class RevenueService implements OrderProcessor
 {
-    private final Map<String, Integer> db = new HashMap<>();
+    // Revenue per category; updated from any number of ingest threads, changes published every 2 seconds
+    private final CategoryTotals revenue = new CategoryTotals(0, Duration.ofSeconds(2));
 
     @Override
     public void consume(Order order)
     {
-        var currentRevenue = db.getOrDefault(order.category(), 0);
-        var updatedRevenue = currentRevenue + order.price();
-        db.put(order.category(), updatedRevenue);
-
+        revenue.add(order.category(), order.price());
     }
 
     @Override
-    public Flux<String> stream()
+    public Flux<CategoryTotals.Update> changes()
     {
-        return Flux.interval(Duration.ofSeconds(2))
-                .map(i -> this.db.toString());
+        return revenue.changes();
     }
 }
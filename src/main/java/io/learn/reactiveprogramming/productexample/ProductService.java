@@ -2,6 +2,7 @@ package io.learn.reactiveprogramming.productexample;
 
 import io.learn.reactiveprogramming.client.ExternalServiceClient;
 import io.learn.reactiveprogramming.common.AbstractHttpClient;
+import io.learn.reactiveprogramming.common.Hedger;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
@@ -9,9 +10,13 @@ import java.time.Duration;
 public class ProductService
 {
     ExternalServiceClient client = new ExternalServiceClient(AbstractHttpClient.createDefaultHttpClient());
+    // Falls back after the upstream's p95 latency instead of always waiting the full 2 seconds
+    Hedger hedger = new Hedger(95, Duration.ofSeconds(2), 10);
 
     /**
      * Retrieves the product name for a given product ID.
+     * If the product lookup is slower than 95% of recent lookups, the timeout fallback is requested too
+     * and whichever answers first is used. If neither has answered after 2 seconds, the timeout fallback is requested again.
      *
      * @param productId The ID of the product to retrieve.
      * @return A Mono containing the product name.
@@ -24,6 +29,8 @@ public class ProductService
 
         return client
                 .getProductNameByPath(defaultPath)
+                .transform(hedger.hedgeWith(client.getProductNameByPath(timeoutPath)))
+                // The hedge is skipped while too many backups run, so a hung primary still needs a timeout
                 .timeout(Duration.ofSeconds(2), client.getProductNameByPath(timeoutPath))
                 .switchIfEmpty(client.getProductNameByPath(emptyPath));
     }
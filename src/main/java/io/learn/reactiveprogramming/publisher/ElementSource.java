@@ -0,0 +1,79 @@
+package io.learn.reactiveprogramming.publisher;
+
+import com.github.javafaker.Faker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A pluggable producer of elements for {@link PublisherImpl}.
+ *
+ * Instead of building one element per onNext call, a source is asked for a whole chunk at once.
+ * The Subscription calls it on a background thread ahead of demand, so the cost of creating an
+ * element is paid before the Subscriber asks for it rather than inside request(n).
+ *
+ * Contract:
+ * - next(count) returns at most count elements; returning fewer is allowed.
+ * - Returning an empty list means the source is exhausted and the stream completes.
+ * - A single Publisher shares its source between all of its Subscriptions, so next(count)
+ *   may be called from several threads at once and must be thread-safe.
+ *
+ * @param <T> The type of elements produced by this source
+ */
+@FunctionalInterface
+public interface ElementSource<T>
+{
+    /**
+     * Produces the next chunk of elements.
+     *
+     * @param count The maximum number of elements to produce, always greater than zero
+     * @return A list of up to count elements; an empty list signals the end of the source
+     */
+    List<T> next(int count);
+
+    /**
+     * A source of fake email addresses.
+     * The Faker instance is created once per source rather than once per Subscription,
+     * and a whole chunk is generated under a single lock because Faker is not thread-safe.
+     *
+     * @return An endless source of email addresses
+     */
+    static ElementSource<String> emails()
+    {
+        var faker = Faker.instance();
+        return count ->
+        {
+            var chunk = new ArrayList<String>(count);
+            synchronized (faker)
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    chunk.add(faker.internet().emailAddress());
+                }
+            }
+            return chunk;
+        };
+    }
+
+    /**
+     * Adapts a per-element Supplier into a chunked source.
+     * The Supplier must be thread-safe if the Publisher has more than one Subscriber.
+     *
+     * @param supplier Produces one element per call
+     * @param <T>      The type of elements produced
+     * @return An endless source backed by the Supplier
+     */
+    static <T> ElementSource<T> generate(Supplier<? extends T> supplier)
+    {
+        return count ->
+        {
+            var chunk = new ArrayList<T>(count);
+            for (int i = 0; i < count; i++)
+            {
+                chunk.add(supplier.get());
+            }
+            return chunk;
+        };
+    }
+}
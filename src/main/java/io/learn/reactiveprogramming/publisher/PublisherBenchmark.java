@@ -0,0 +1,58 @@
+package io.learn.reactiveprogramming.publisher;
+
+import io.learn.reactiveprogramming.common.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A rough throughput comparison between the hand-written {@link PublisherImpl} and Reactor's Flux.generate.
+ *
+ * Both publishers emit the same cheap, sequential values so that the measurement reflects the cost
+ * of the demand and emission machinery rather than the cost of creating elements. Each run is measured by a
+ * {@link io.learn.reactiveprogramming.common.MetricsSubscriber}, which also reports the inter-arrival percentiles.
+ * This is a quick sanity check, not a JMH benchmark: run it a few times and compare the later rounds.
+ */
+public class PublisherBenchmark
+{
+    private static final Logger log = LoggerFactory.getLogger(PublisherBenchmark.class);
+    private static final long ITEMS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args)
+    {
+        for (int round = 1; round <= ROUNDS; round++)
+        {
+            var counter = new AtomicLong();
+            run("PublisherImpl round " + round, Flux.from(new PublisherImpl<>(ElementSource.generate(counter::incrementAndGet), ITEMS)));
+            run("Flux.generate round " + round, Flux.generate(AtomicLong::new, (state, sink) ->
+            {
+                sink.next(state.incrementAndGet());
+                return state;
+            }).take(ITEMS));
+        }
+    }
+
+    private static void run(String name, Flux<?> flux)
+    {
+        var metrics = Util.metricsSubscriber(name);
+        var done = new CountDownLatch(1);
+        var start = System.nanoTime();
+        flux.doFinally(signal -> done.countDown()).subscribe(metrics);
+        try
+        {
+            done.await();
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+        var elapsedNanos = System.nanoTime() - start;
+        var count = metrics.getElements();
+        log.info("{}: {} items in {} ms ({} items/s)",
+                name, count, elapsedNanos / 1_000_000, count * 1_000_000_000L / Math.max(elapsedNanos, 1));
+    }
+}
@@ -3,16 +3,88 @@ package io.learn.reactiveprogramming.publisher;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
 /**
  * This class implements the Publisher interface from the Reactive Streams specification.
- * It demonstrates a basic implementation of a Publisher that emits String values.
+ * It demonstrates a basic implementation of a Publisher that emits values of any type,
+ * taken from a pluggable {@link ElementSource}.
  *
  * The Publisher interface is a fundamental part of reactive programming, representing
  * a provider of a potentially unbounded number of sequenced elements, publishing them
  * according to the demand received from its Subscribers.
+ *
+ * Elements are produced in chunks on a background thread, ahead of demand, and handed out
+ * when the Subscriber calls request(n). Throughput therefore depends on how fast a prepared
+ * element can be handed over, not on how expensive the element was to create.
+ *
+ * @param <T> The type of elements emitted by this Publisher
  */
-public class PublisherImpl implements Publisher<String>
+public class PublisherImpl<T> implements Publisher<T>
 {
+    private static final long DEFAULT_MAX_ITEMS = 10;
+    private static final int DEFAULT_CHUNK_SIZE = 256;
+    // Chunks are filled on virtual threads, so a slow source never ties up a platform thread
+    private static final Executor PREFETCH_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ElementSource<T> source;
+    private final long maxItems;
+    private final int chunkSize;
+    private final Executor prefetchExecutor;
+
+    /**
+     * Creates a Publisher whose subscriptions complete after the default number of items.
+     *
+     * @param source The source the elements are taken from.
+     */
+    public PublisherImpl(ElementSource<T> source)
+    {
+        this(source, DEFAULT_MAX_ITEMS);
+    }
+
+    /**
+     * Creates a Publisher whose subscriptions complete after the given number of items.
+     *
+     * @param source   The source the elements are taken from.
+     * @param maxItems The number of items each Subscriber receives before completion.
+     *                 Long.MAX_VALUE produces an endless stream, which is handy for throughput benchmarks.
+     */
+    public PublisherImpl(ElementSource<T> source, long maxItems)
+    {
+        this(source, maxItems, DEFAULT_CHUNK_SIZE, PREFETCH_EXECUTOR);
+    }
+
+    /**
+     * Creates a fully configured Publisher.
+     *
+     * @param source           The source the elements are taken from.
+     * @param maxItems         The number of items each Subscriber receives before completion.
+     * @param chunkSize        The largest chunk requested from the source in one call.
+     * @param prefetchExecutor The executor the source is called on.
+     */
+    public PublisherImpl(ElementSource<T> source, long maxItems, int chunkSize, Executor prefetchExecutor)
+    {
+        if (chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("chunkSize must be positive but was " + chunkSize);
+        }
+        this.source = source;
+        this.maxItems = maxItems;
+        this.chunkSize = chunkSize;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * Creates the email Publisher used by the FakeEmailGenerator scenarios.
+     *
+     * @return A Publisher of fake email addresses that completes after the default number of items
+     */
+    public static PublisherImpl<String> emails()
+    {
+        return new PublisherImpl<>(ElementSource.emails());
+    }
+
     /**
      * Implements the subscribe method as defined in the Publisher interface.
      * This method is called when a Subscriber wants to receive items from this Publisher.
@@ -26,12 +98,14 @@ public class PublisherImpl implements Publisher<String>
      * - Publishers respect backpressure, only producing items as fast as the slowest Subscriber can handle.
      */
     @Override
-    public void subscribe(Subscriber<? super String> subscriber)
+    public void subscribe(Subscriber<? super T> subscriber)
     {
         // Create a new Subscription for this Subscriber
-        var subscription = new SubscriptionImpl(subscriber);
-        // Notify the Subscriber about the new Subscription
+        var subscription = new SubscriptionImpl<T>(subscriber, source, maxItems, chunkSize, prefetchExecutor);
+        // Notify the Subscriber about the new Subscription; rule 1.9 requires this before any other signal
         subscriber.onSubscribe(subscription);
+        // Start filling the first chunk, or complete right away if there is nothing to emit
+        subscription.start();
     }
 
     /**
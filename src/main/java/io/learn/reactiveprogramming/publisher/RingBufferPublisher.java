@@ -0,0 +1,549 @@
+package io.learn.reactiveprogramming.publisher;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hot, multicasting Publisher backed by a single pre-allocated ring buffer.
+ *
+ * Every element is written once into the ring. Each Subscriber keeps its own sequence cursor
+ * pointing at the next slot it will read, so fanning out to N Subscribers costs one write plus
+ * N index reads, instead of one queue copy per Subscriber as with publish().refCount(n).
+ *
+ * The producer may only overwrite a slot once every Subscriber has read it, so the slowest
+ * cursor gates the producer. What happens when the producer catches up with that cursor
+ * is decided by the {@link LagStrategy}.
+ *
+ * The ring can be fed in two ways:
+ * - Directly, by calling onNext/onError/onComplete. Calls must not overlap, as required for any
+ *   Reactive Streams Subscriber.
+ * - By an upstream Publisher. The ring then subscribes to it once minSubscribers Subscribers
+ *   have arrived, and cancels it when the last one leaves (like refCount(n)); the next Subscribers
+ *   to arrive connect again, also after the upstream has terminated. With BLOCK it only requests
+ *   as many elements as there are free slots behind the slowest cursor, so backpressure reaches
+ *   the upstream instead of parking the producing thread.
+ *
+ * Subscribers join hot: they see elements published after they subscribed.
+ *
+ * @param <T> The type of elements multicast by this Publisher
+ */
+public class RingBufferPublisher<T> implements Publisher<T>, Subscriber<T>
+{
+    /**
+     * What the producer does when the slot it needs still holds an element that a Subscriber has not read.
+     */
+    public enum LagStrategy
+    {
+        /**
+         * Wait for the slowest Subscriber. With an upstream this becomes upstream backpressure.
+         */
+        BLOCK,
+        /**
+         * Discard the new element; the Subscribers keep their position.
+         */
+        DROP,
+        /**
+         * Disconnect the lagging Subscribers with an error and overwrite the slot.
+         */
+        EVICT
+    }
+
+    private static final long PARK_NANOS = 1_000;
+
+    private final AtomicReferenceArray<Object> buffer;
+    private final int capacity;
+    private final int mask;
+    private final LagStrategy strategy;
+    private final List<RingSubscription> subscribers = new CopyOnWriteArrayList<>();
+    // Sequence of the last published element; -1 means nothing has been published yet
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    private final Publisher<? extends T> source;
+    private final int minSubscribers;
+    // Written under the lock of this ring; the current connection to the source, if any
+    private boolean connected;
+    private volatile Connection connection;
+    private volatile Subscription upstream;
+    // Highest sequence the upstream has been allowed to produce so far
+    private final AtomicLong upstreamLimit = new AtomicLong(-1);
+
+    private volatile boolean done;
+    private volatile Throwable error;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * Creates a ring that is fed by calling onNext directly or by subscribing it to a Publisher.
+     *
+     * @param capacity The number of slots, rounded up to the next power of two.
+     * @param strategy What to do when the slowest Subscriber is a full ring behind.
+     */
+    public RingBufferPublisher(int capacity, LagStrategy strategy)
+    {
+        this(null, 0, capacity, strategy);
+    }
+
+    /**
+     * Creates a ring that subscribes to the given source once enough Subscribers have arrived.
+     *
+     * @param source         The upstream to multicast, or null to feed the ring manually.
+     * @param minSubscribers The number of Subscribers needed before the source is subscribed to.
+     * @param capacity       The number of slots, rounded up to the next power of two.
+     * @param strategy       What to do when the slowest Subscriber is a full ring behind.
+     */
+    public RingBufferPublisher(Publisher<? extends T> source, int minSubscribers, int capacity, LagStrategy strategy)
+    {
+        if (capacity <= 0 || capacity > (1 << 30))
+        {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30 but was " + capacity);
+        }
+        int size = 1;
+        while (size < capacity)
+        {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.strategy = strategy;
+        this.source = source;
+        this.minSubscribers = minSubscribers;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber)
+    {
+        var subscription = new RingSubscription(subscriber);
+        // Join the gating list before picking a start position, so the producer can never
+        // lap a cursor it has not seen yet
+        subscribers.add(subscription);
+        subscription.sequence.set(cursor.get() + 1);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+        var connection = connect();
+        if (connection != null)
+        {
+            source.subscribe(connection);
+        }
+    }
+
+    /**
+     * @return A new connection to subscribe to the source, or null if the ring is connected or still waiting for Subscribers.
+     */
+    private synchronized Connection connect()
+    {
+        if (source == null || connected || subscribers.size() < minSubscribers)
+        {
+            return null;
+        }
+        connected = true;
+        connection = new Connection();
+        return connection;
+    }
+
+    /**
+     * Cancels the source once the last Subscriber has left, and resets the ring so the next Subscribers connect again.
+     */
+    private void disconnectIfIdle()
+    {
+        Subscription cancelled;
+        synchronized (this)
+        {
+            if (!connected || !subscribers.isEmpty())
+            {
+                return;
+            }
+            connected = false;
+            connection = null;
+            cancelled = upstream;
+            upstream = null;
+            // Demand of the next connection is counted from the current cursor
+            upstreamLimit.set(cursor.get());
+            error = null;
+            done = false;
+        }
+        if (cancelled != null)
+        {
+            cancelled.cancel();
+        }
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription)
+    {
+        if (this.upstream != null)
+        {
+            subscription.cancel();
+            return;
+        }
+        this.upstream = subscription;
+        if (strategy == LagStrategy.BLOCK)
+        {
+            requestUpstream();
+        }
+        else
+        {
+            subscription.request(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Publishes one element to every current Subscriber.
+     */
+    @Override
+    public void onNext(T item)
+    {
+        if (done)
+        {
+            return;
+        }
+        long next = cursor.get() + 1;
+        if (!claim(next))
+        {
+            dropped.incrementAndGet();
+            return;
+        }
+        buffer.lazySet((int) next & mask, item);
+        cursor.set(next);
+        for (var subscription : subscribers)
+        {
+            subscription.drain();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+        if (done)
+        {
+            return;
+        }
+        this.error = throwable;
+        terminate();
+    }
+
+    @Override
+    public void onComplete()
+    {
+        if (done)
+        {
+            return;
+        }
+        terminate();
+    }
+
+    /**
+     * @return The number of elements discarded by the DROP strategy.
+     */
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * @return The number of Subscribers disconnected by the EVICT strategy.
+     */
+    public long getEvictedCount()
+    {
+        return evicted.get();
+    }
+
+    /**
+     * @return The number of currently attached Subscribers.
+     */
+    public int getSubscriberCount()
+    {
+        return subscribers.size();
+    }
+
+    /**
+     * The ring's subscription to the source. Signals of a connection that has been cancelled are ignored,
+     * so a late signal of the previous connection cannot reach the Subscribers of the next one.
+     */
+    private final class Connection implements Subscriber<T>
+    {
+        private boolean isCurrent()
+        {
+            return connection == this;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription)
+        {
+            synchronized (RingBufferPublisher.this)
+            {
+                if (connection != this || upstream != null)
+                {
+                    subscription.cancel();
+                    return;
+                }
+                upstream = subscription;
+            }
+            if (strategy == LagStrategy.BLOCK)
+            {
+                requestUpstream();
+            }
+            else
+            {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(T item)
+        {
+            if (isCurrent())
+            {
+                RingBufferPublisher.this.onNext(item);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            if (isCurrent())
+            {
+                RingBufferPublisher.this.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete()
+        {
+            if (isCurrent())
+            {
+                RingBufferPublisher.this.onComplete();
+            }
+        }
+    }
+
+    private void terminate()
+    {
+        done = true;
+        for (var subscription : subscribers)
+        {
+            subscription.drain();
+        }
+    }
+
+    /**
+     * Waits until the slot for the given sequence may be overwritten, applying the lag strategy.
+     *
+     * @return false if the element has to be dropped.
+     */
+    private boolean claim(long next)
+    {
+        long wrapPoint = next - capacity;
+        while (wrapPoint >= minimumSequence(next))
+        {
+            switch (strategy)
+            {
+                case DROP ->
+                {
+                    return false;
+                }
+                case EVICT ->
+                {
+                    for (var subscription : subscribers)
+                    {
+                        if (subscription.sequence.get() <= wrapPoint)
+                        {
+                            subscription.evict();
+                        }
+                    }
+                }
+                case BLOCK -> LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The smallest sequence still to be read by any Subscriber, or the given default if there are none.
+     */
+    private long minimumSequence(long defaultValue)
+    {
+        long minimum = defaultValue;
+        for (var subscription : subscribers)
+        {
+            minimum = Math.min(minimum, subscription.sequence.get());
+        }
+        return minimum;
+    }
+
+    /**
+     * Tops up upstream demand to the number of slots free behind the slowest cursor.
+     * Demand is sent in batches of a quarter ring to avoid a request call per element.
+     */
+    private void requestUpstream()
+    {
+        var subscription = this.upstream;
+        if (subscription == null || strategy != LagStrategy.BLOCK)
+        {
+            return;
+        }
+        long allowed = minimumSequence(cursor.get() + 1) + capacity - 1;
+        while (true)
+        {
+            long limit = upstreamLimit.get();
+            long delta = allowed - limit;
+            if (delta <= 0 || (delta < Math.max(1, capacity / 4) && limit > cursor.get()))
+            {
+                return;
+            }
+            if (upstreamLimit.compareAndSet(limit, allowed))
+            {
+                subscription.request(delta);
+                return;
+            }
+        }
+    }
+
+    /**
+     * The view of the ring held by one Subscriber: its read cursor plus its own demand counter.
+     * Emission runs in the same work-in-progress drain loop as {@link SubscriptionImpl}.
+     */
+    private final class RingSubscription implements Subscription
+    {
+        private final Subscriber<? super T> actual;
+        // Next sequence this Subscriber will read; Long.MAX_VALUE until the start position is set
+        private final AtomicLong sequence = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable failure;
+
+        private RingSubscription(Subscriber<? super T> actual)
+        {
+            this.actual = actual;
+        }
+
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                failure = new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + n);
+                detach();
+                drain();
+                return;
+            }
+            long current;
+            long next;
+            do
+            {
+                current = requested.get();
+                if (current == Long.MAX_VALUE)
+                {
+                    break;
+                }
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            }
+            while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            detach();
+        }
+
+        /**
+         * Called by the producer when this Subscriber is a full ring behind under the EVICT strategy.
+         */
+        private void evict()
+        {
+            if (failure == null)
+            {
+                failure = new IllegalStateException("Subscriber evicted: it fell " + capacity + " elements behind the producer");
+                evicted.incrementAndGet();
+            }
+            detach();
+            drain();
+        }
+
+        private void detach()
+        {
+            if (subscribers.remove(this))
+            {
+                requestUpstream();
+                disconnectIfIdle();
+            }
+        }
+
+        private void drain()
+        {
+            if (wip.getAndIncrement() != 0)
+            {
+                return;
+            }
+            int missed = 1;
+            do
+            {
+                if (cancelled)
+                {
+                    return;
+                }
+                if (failure != null)
+                {
+                    cancelled = true;
+                    actual.onError(failure);
+                    return;
+                }
+                long demand = requested.get();
+                long delivered = 0;
+                long next = sequence.get();
+                while (delivered != demand && next <= cursor.get())
+                {
+                    @SuppressWarnings("unchecked")
+                    T item = (T) buffer.get((int) next & mask);
+                    // An eviction may have let the producer overwrite this slot; never emit a lapped element
+                    if (cancelled || failure != null)
+                    {
+                        break;
+                    }
+                    next++;
+                    sequence.lazySet(next);
+                    actual.onNext(item);
+                    delivered++;
+                }
+                if (delivered != 0)
+                {
+                    if (demand != Long.MAX_VALUE)
+                    {
+                        requested.addAndGet(-delivered);
+                    }
+                    requestUpstream();
+                }
+                if (failure == null && !cancelled && done && sequence.get() > cursor.get())
+                {
+                    cancelled = true;
+                    var throwable = error;
+                    subscribers.remove(this);
+                    disconnectIfIdle();
+                    if (throwable != null)
+                    {
+                        actual.onError(throwable);
+                    }
+                    else
+                    {
+                        actual.onComplete();
+                    }
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            }
+            while (missed != 0);
+        }
+    }
+}
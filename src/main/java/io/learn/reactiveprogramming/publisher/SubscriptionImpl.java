@@ -1,9 +1,15 @@
 package io.learn.reactiveprogramming.publisher;
 
-import com.github.javafaker.Faker;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
@@ -14,36 +20,72 @@ import java.util.logging.Logger;
  * allowing Subscribers to control the rate at which they receive items from Publishers.
  *
  * Example Description:
- * This implementation simulates a stream of email addresses, demonstrating:
+ * This implementation streams elements from an {@link ElementSource}, demonstrating:
  * - Controlled emission of data based on Subscriber requests
  * - Handling of maximum emission limits
- * - Error handling for excessive requests
+ * - Error handling for invalid requests and failing sources
  * - Proper completion signaling
  * - Cancellation support
+ *
+ * Concurrency model:
+ * - Outstanding demand lives in an atomic counter, so request and cancel may be called from any thread.
+ * - Emission happens inside a work-in-progress (WIP) drain loop. Only the thread that moves the WIP
+ *   counter away from zero emits; every other caller just records its demand and leaves. This keeps
+ *   onNext signals serialized and turns a request made from inside onNext into another loop iteration
+ *   instead of a recursive call, so the stack never grows.
+ * - A demand of Long.MAX_VALUE is treated as unbounded and is never decremented.
+ *
+ * Prefetching:
+ * - Chunks are filled by a single background task at a time and queued for the drain loop.
+ * - The first chunk after new demand is sized to the demand not yet covered by the queue; after that
+ *   the task keeps up to PREFETCH_CHUNKS full chunks ready, so the next request(n) is served from memory.
+ *
+ * @param <T> The type of elements emitted through this Subscription
  */
-public class SubscriptionImpl implements Subscription
+public class SubscriptionImpl<T> implements Subscription
 {
     private static final Logger log = Logger.getLogger(SubscriptionImpl.class.getName());
-    private static final int MAX_ITERATIONS = 10;
-    private final Faker faker;
-    private final Subscriber<? super String> subscriber;
-    private boolean cancelled;
-    private int count = 0;
+    private static final int PREFETCH_CHUNKS = 4;
+    private final Subscriber<? super T> subscriber;
+    private final ElementSource<T> source;
+    private final long maxItems;
+    private final int chunkSize;
+    private final Executor prefetchExecutor;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Queue<List<T>> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicLong buffered = new AtomicLong();
+    private final AtomicBoolean filling = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private volatile boolean exhausted;
+    private volatile Throwable invalidRequest;
+    private volatile Throwable sourceError;
+    // Only read and written by the prefetch task; the filling flag publishes it between tasks
+    private long produced;
+    // Only read and written by the thread that currently owns the drain loop
+    private List<T> current = List.of();
+    private int index;
 
     /**
      * Constructor for SubscriptionImpl.
      * Initializes the Subscription with a Subscriber and sets up necessary resources.
      *
-     * @param subscriber The Subscriber that will receive items through this Subscription.
-     *
-     * In this example:
-     * - We initialize a Faker instance to generate random email addresses.
-     * - We store the Subscriber to send items and signals to it.
+     * @param subscriber       The Subscriber that will receive items through this Subscription.
+     * @param source           The source elements are taken from.
+     * @param maxItems         The number of items emitted before the stream completes.
+     *                         Use Long.MAX_VALUE for a stream that only ends when the source does.
+     * @param chunkSize        The largest chunk requested from the source in one call.
+     * @param prefetchExecutor The executor the source is called on.
      */
-    public SubscriptionImpl(Subscriber<? super String> subscriber)
+    public SubscriptionImpl(Subscriber<? super T> subscriber, ElementSource<T> source, long maxItems,
+                            int chunkSize, Executor prefetchExecutor)
     {
         this.subscriber = subscriber;
-        this.faker = Faker.instance();
+        this.source = source;
+        this.maxItems = maxItems;
+        this.chunkSize = chunkSize;
+        this.prefetchExecutor = prefetchExecutor;
+        this.exhausted = maxItems <= 0;
     }
 
     /**
@@ -54,35 +96,27 @@ public class SubscriptionImpl implements Subscription
      *
      * Key aspects of the request method in this example:
      * - It respects backpressure by only sending the requested number of items.
-     * - It handles cancellation and error scenarios.
-     * - It enforces an upper limit (MAX_ITERATIONS) on the number of items to prevent unbounded requests.
-     * - It generates and emits fake email addresses as the stream items.
-     * - It signals completion when the maximum number of items has been emitted.
+     * - Demand is accumulated atomically and capped at Long.MAX_VALUE (unbounded).
+     * - A non-positive request is a specification violation (rule 3.9) and is signalled via onError.
+     * - Items already prefetched are emitted right away; the rest follow as soon as the source delivers them.
+     * - It signals completion when the maximum number of items has been emitted or the source runs dry.
      */
     @Override
     public void request(long requested)
     {
-        if(cancelled)
+        if (cancelled)
         {
             return;
         }
-        if (requested > MAX_ITERATIONS)
+        if (requested <= 0)
         {
-            this.subscriber.onError(new RuntimeException("Maximum number of iterations exceeded"));
-            this.cancelled = true;
+            this.invalidRequest = new IllegalArgumentException("§3.9 violated: positive request amount required but it was " + requested);
+            drain();
+            return;
         }
         log.info("Subscriber has requested " + requested + " items");
-        for(int i = 0; i < requested && count < MAX_ITERATIONS; i++)
-        {
-            count++;
-            this.subscriber.onNext(this.faker.internet().emailAddress());
-            if (count == MAX_ITERATIONS)
-            {
-                log.info("Subscriber has reached the maximum number of iterations");
-                this.subscriber.onComplete();
-                this.cancelled = true;
-            }
-        }
+        addCap(this.requested, requested);
+        drain();
     }
 
     /**
@@ -90,14 +124,202 @@ public class SubscriptionImpl implements Subscription
      * This method is called by the Subscriber to cancel the Subscription.
      *
      * In this example:
-     * - Cancellation is implemented by setting a flag.
-     * - This flag is checked in the request method to prevent further emissions after cancellation.
+     * - Cancellation is implemented by setting a volatile flag.
+     * - The drain loop checks the flag before every emission, so cancellation
+     *   from another thread takes effect at the next item.
+     * - Prefetched chunks are dropped so they can be garbage collected.
      */
     @Override
     public void cancel()
     {
         log.info("Subscription cancelled");
         this.cancelled = true;
+        this.ready.clear();
+    }
+
+    /**
+     * Called by the Publisher once onSubscribe has returned. Starts filling the first chunk,
+     * or signals onComplete without waiting for a request when maxItems leaves nothing to emit.
+     */
+    void start()
+    {
+        if (exhausted)
+        {
+            drain();
+        }
+        else
+        {
+            prefetch();
+        }
+    }
+
+    /**
+     * Schedules the background task that fills chunks, unless one is already running
+     * or enough elements are buffered.
+     */
+    void prefetch()
+    {
+        if (cancelled || exhausted || buffered.get() >= prefetchTarget())
+        {
+            return;
+        }
+        if (filling.compareAndSet(false, true))
+        {
+            prefetchExecutor.execute(this::fill);
+        }
+    }
+
+    /**
+     * Body of the background task. Pulls chunks from the source until the buffer reaches its
+     * target, handing each chunk to the drain loop as soon as it is ready.
+     */
+    private void fill()
+    {
+        try
+        {
+            while (!cancelled && !exhausted && buffered.get() < prefetchTarget())
+            {
+                long uncovered = requested.get() - buffered.get();
+                long size = Math.min(maxItems - produced, uncovered > 0 ? Math.min(uncovered, chunkSize) : chunkSize);
+                List<T> chunk = source.next((int) size);
+                if (!chunk.isEmpty())
+                {
+                    produced += chunk.size();
+                    ready.offer(chunk);
+                    buffered.addAndGet(chunk.size());
+                }
+                if (chunk.isEmpty() || produced >= maxItems)
+                {
+                    exhausted = true;
+                }
+                drain();
+            }
+        }
+        catch (Throwable throwable)
+        {
+            sourceError = throwable;
+            exhausted = true;
+            drain();
+        }
+        finally
+        {
+            filling.set(false);
+        }
+        // Demand may have been drained while this task was finishing; make sure no refill is lost
+        prefetch();
+    }
+
+    private long prefetchTarget()
+    {
+        return Math.max(chunkSize, Math.min(requested.get(), (long) chunkSize * PREFETCH_CHUNKS));
+    }
+
+    /**
+     * Emits as many items as the outstanding demand and the prefetched chunks allow.
+     * The WIP counter guarantees that only one thread runs the loop at a time; a request or a
+     * new chunk arriving while the loop runs bumps the counter, and the loop goes round once more.
+     */
+    private void drain()
+    {
+        if (wip.getAndIncrement() != 0)
+        {
+            return;
+        }
+        int missed = 1;
+        do
+        {
+            if (cancelled)
+            {
+                return;
+            }
+            if (invalidRequest != null)
+            {
+                terminate();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            long demand = requested.get();
+            long delivered = 0;
+            while (delivered != demand)
+            {
+                if (index == current.size())
+                {
+                    List<T> next = ready.poll();
+                    if (next == null)
+                    {
+                        break;
+                    }
+                    current = next;
+                    index = 0;
+                }
+                if (cancelled)
+                {
+                    return;
+                }
+                subscriber.onNext(current.get(index++));
+                delivered++;
+            }
+            if (delivered != 0)
+            {
+                buffered.addAndGet(-delivered);
+                if (demand != Long.MAX_VALUE)
+                {
+                    requested.addAndGet(-delivered);
+                }
+            }
+            // Read the flag before checking the queue: the source always queues its last chunk first
+            boolean done = exhausted;
+            if (done && index == current.size() && ready.isEmpty())
+            {
+                if (!cancelled)
+                {
+                    terminate();
+                    if (sourceError != null)
+                    {
+                        subscriber.onError(sourceError);
+                    }
+                    else
+                    {
+                        log.info("Subscriber has reached the maximum number of iterations");
+                        subscriber.onComplete();
+                    }
+                }
+                return;
+            }
+            prefetch();
+            missed = wip.addAndGet(-missed);
+        }
+        while (missed != 0);
+    }
+
+    private void terminate()
+    {
+        cancelled = true;
+        ready.clear();
+        current = List.of();
+    }
+
+    /**
+     * Adds n to the demand counter, saturating at Long.MAX_VALUE.
+     */
+    private static void addCap(AtomicLong counter, long n)
+    {
+        long current;
+        long next;
+        do
+        {
+            current = counter.get();
+            if (current == Long.MAX_VALUE)
+            {
+                return;
+            }
+            next = current + n;
+            if (next < 0)
+            {
+                next = Long.MAX_VALUE;
+            }
+        }
+        while (!counter.compareAndSet(current, next));
     }
 
     /**
@@ -111,17 +333,19 @@ public class SubscriptionImpl implements Subscription
      * 2. Resource Optimization:
      *    - Enables efficient use of system resources by producing only what's needed.
      *    - Prevents unnecessary work and memory allocation.
-     *    - In this example: Email addresses are generated on-demand, not pre-computed.
+     *    - In this example: Only a bounded number of chunks is prepared ahead of demand.
      *
      * 3. Flow Control:
      *    - Provides a mechanism for pausing and resuming data flow.
      *    - Useful in scenarios where processing needs to be temporarily halted.
-     *    - In this example: The Subscriber can control the flow by making multiple request calls.
+     *    - In this example: The Subscriber can control the flow by making multiple request calls,
+     *      from any thread and even from inside onNext.
      *
      * 4. Error Handling:
      *    - Allows for graceful error propagation and handling in the reactive stream.
      *    - Crucial for building resilient and fault-tolerant systems.
-     *    - In this example: An error is signaled if the request exceeds the maximum allowed items.
+     *    - In this example: An error is signaled if the Subscriber requests zero or a negative number of items,
+     *      or after the buffered items if the source throws.
      *
      * 5. Cancellation Support:
      *    - Enables Subscribers to stop receiving data at any point.
@@ -131,7 +355,7 @@ public class SubscriptionImpl implements Subscription
      * 6. Custom Rate Limiting:
      *    - Facilitates implementation of custom rate-limiting strategies.
      *    - Useful in API consumption scenarios or when dealing with rate-limited resources.
-     *    - In this example: A maximum limit (MAX_ITERATIONS) is enforced on the total number of emitted items.
+     *    - In this example: A maximum limit (maxItems) is enforced on the total number of emitted items.
      *
      * 7. Adaptive Streaming:
      *    - Allows for dynamic adjustment of data flow based on system conditions.
@@ -144,7 +368,7 @@ public class SubscriptionImpl implements Subscription
      *    - In this example: Logging statements help in tracking the flow of requests and emissions.
      *
      * This example demonstrates a simple yet practical implementation of a Subscription,
-     * showcasing how it manages the flow of data (email addresses in this case) between
+     * showcasing how it manages the flow of data (email addresses in the FakeEmailGenerator scenarios) between
      * a Publisher and a Subscriber. It illustrates key concepts like backpressure,
      * cancellation, and completion in a reactive stream.
      */
@@ -1,5 +1,6 @@
 package io.learn.reactiveprogramming.repeatretry;
 
+import io.learn.reactiveprogramming.common.RateLimiter;
 import io.learn.reactiveprogramming.common.Util;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -65,4 +66,16 @@ public class RepeatExample
                 .repeatWhen(flux -> flux.delayElements(Duration.ofSeconds(1)).take(2))//repeats 3 times only after it receives complete signal
                 .subscribe(subscriber);
     }
+
+    private static void demo6()
+    {
+        var mono = Mono.fromSupplier(() -> Util.faker().country().name()); // non-blocking I/O
+        var subscriber = Util.subscriber();
+        var rateLimiter = new RateLimiter(2, 5);
+        mono
+                .transform(rateLimiter::limit) //every repetition waits for a token: a burst of 5, then 2 per second
+                .repeat()
+                .take(15)
+                .subscribe(subscriber);
+    }
 }
@@ -1,8 +1,10 @@
 package io.learn.reactiveprogramming.repeatretry;
 
 import io.learn.reactiveprogramming.common.Util;
+import io.learn.reactiveprogramming.repeatretry.client.RetryBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
@@ -47,6 +49,21 @@ public class RetryExample
                 .subscribe(Util.subscriber());
     }
 
+    public static void demo4()
+    {
+        // One budget shared by all calls: retries may add at most 20% to the traffic, plus a reserve of 5
+        var budget = new RetryBudget(0.2, 5);
+        Flux.range(1, 10)
+                .flatMap(i -> getCountryName()
+                        .doOnSubscribe(s -> budget.recordRequest())
+                        // Only a retry that would happen spends a token, never the final failure
+                        .retryWhen(budget.decorrelatedJitter(2, Duration.ofMillis(100), Duration.ofSeconds(1),
+                                err -> err instanceof RuntimeException, rs -> logger.info("retrying {}", rs)))
+                        .onErrorResume(err -> Mono.just("gave up: " + err.getMessage())))
+                .doOnComplete(() -> logger.info("retries allowed: {}, denied: {}", budget.getAllowedCount(), budget.getDeniedCount()))
+                .subscribe(Util.subscriber());
+    }
+
     private static Mono<String> getCountryName()
     {
         var atomicInteger = new AtomicInteger(0);
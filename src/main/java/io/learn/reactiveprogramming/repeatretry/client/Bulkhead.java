@@ -0,0 +1,48 @@
+package io.learn.reactiveprogramming.repeatretry.client;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of calls in flight to an upstream, so a slow upstream cannot tie up every connection and thread.
+ * A call over the cap fails immediately with {@link BulkheadFullError} instead of waiting.
+ */
+public class Bulkhead
+{
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+
+    public Bulkhead(int maxConcurrentCalls)
+    {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * Returns a Mono that takes a slot before subscribing to the call and frees it when the call ends.
+     * Use it with transform(bulkhead::protect).
+     *
+     * @param call The call to protect
+     * @return The protected call, failing with a BulkheadFullError if every slot is taken
+     */
+    public <T> Mono<T> protect(Mono<T> call)
+    {
+        return Mono.defer(() ->
+        {
+            if (!permits.tryAcquire())
+            {
+                return Mono.error(new BulkheadFullError(maxConcurrentCalls));
+            }
+            return call.doFinally(signal -> permits.release());
+        });
+    }
+
+    /**
+     * @return The number of calls currently in flight
+     */
+    public int getConcurrentCalls()
+    {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+}
@@ -0,0 +1,9 @@
+package io.learn.reactiveprogramming.repeatretry.client;
+
+public class BulkheadFullError extends RuntimeException
+{
+    public BulkheadFullError(int maxConcurrentCalls)
+    {
+        super("bulkhead full: " + maxConcurrentCalls + " calls already in flight");
+    }
+}
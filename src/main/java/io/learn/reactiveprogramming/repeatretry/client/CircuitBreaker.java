@@ -0,0 +1,254 @@
+package io.learn.reactiveprogramming.repeatretry.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A circuit breaker for one endpoint, tripped by the error rate or the slow-call rate of its recent calls.
+ *
+ * - CLOSED:    calls pass. The outcome of the last windowSize calls is kept; once at least minimumCalls are known
+ *              and the share of failures or of calls slower than slowCallDuration reaches its threshold, the circuit opens.
+ * - OPEN:      calls fail immediately with {@link CircuitOpenError}, so retries stop hammering a failing upstream.
+ *              After openDuration the circuit becomes half-open.
+ * - HALF_OPEN: up to halfOpenCalls trial calls pass. If all of them succeed quickly the circuit closes,
+ *              otherwise it opens again.
+ *
+ * A {@link ClientError} means the request was wrong, not that the upstream is unhealthy, so it counts as a success.
+ * Every state change is published on {@link #transitions()}.
+ */
+public class CircuitBreaker
+{
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class.getName());
+
+    private static final int FAILED = 1;
+    private static final int SLOW = 2;
+
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * A change of state of the circuit breaker of one endpoint.
+     */
+    public record Transition(String endpoint, State from, State to, Instant at)
+    {
+    }
+
+    private final String endpoint;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final Duration slowCallDuration;
+    private final double slowCallRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+
+    // The outcomes of the last calls, as FAILED and SLOW bits, in a ring
+    private final byte[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenStarted;
+    private int halfOpenSucceeded;
+    private final Sinks.Many<Transition> transitions = Sinks.many().multicast().directBestEffort();
+
+    /**
+     * Creates a circuit breaker that opens when half of the last 20 calls failed or 80% of them took over 1 second,
+     * stays open for 10 seconds and then lets 3 trial calls through.
+     */
+    public CircuitBreaker(String endpoint)
+    {
+        this(endpoint, 20, 10, 0.5, Duration.ofSeconds(1), 0.8, Duration.ofSeconds(10), 3);
+    }
+
+    /**
+     * @param endpoint              The name of the protected endpoint, used in errors and transitions
+     * @param windowSize            The number of recent calls whose outcome is kept
+     * @param minimumCalls          The number of outcomes needed before the circuit may open
+     * @param failureRateThreshold  The share of failed calls, between 0 and 1, that opens the circuit
+     * @param slowCallDuration      Calls taking longer than this count as slow
+     * @param slowCallRateThreshold The share of slow calls, between 0 and 1, that opens the circuit
+     * @param openDuration          How long the circuit stays open before trial calls are let through
+     * @param halfOpenCalls         The number of trial calls that must succeed to close the circuit
+     */
+    public CircuitBreaker(String endpoint, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration slowCallDuration, double slowCallRateThreshold, Duration openDuration, int halfOpenCalls)
+    {
+        this.endpoint = endpoint;
+        this.window = new byte[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    /**
+     * Returns a Mono that checks the circuit before subscribing to the call and records the call's outcome.
+     * Use it with transform(circuitBreaker::protect).
+     *
+     * @param call The call to protect; it is not subscribed to while the circuit is open
+     * @return The protected call, failing with a CircuitOpenError while the circuit is open
+     */
+    public <T> Mono<T> protect(Mono<T> call)
+    {
+        return Mono.defer(() ->
+        {
+            var admittedIn = tryAcquire();
+            if (admittedIn == null)
+            {
+                return Mono.error(new CircuitOpenError(endpoint));
+            }
+            long start = System.nanoTime();
+            var recorded = new boolean[1];
+            return call
+                    .doOnEach(signal ->
+                    {
+                        if (!recorded[0] && (signal.isOnNext() || signal.isOnComplete() || signal.isOnError()))
+                        {
+                            recorded[0] = true;
+                            boolean failed = signal.isOnError() && !(signal.getThrowable() instanceof ClientError);
+                            record(admittedIn, failed, System.nanoTime() - start);
+                        }
+                    })
+                    .doOnCancel(() ->
+                    {
+                        if (!recorded[0])
+                        {
+                            recorded[0] = true;
+                            cancelled(admittedIn);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * @return The state changes of this circuit breaker, as they happen
+     */
+    public Flux<Transition> transitions()
+    {
+        return transitions.asFlux();
+    }
+
+    public synchronized State getState()
+    {
+        return state;
+    }
+
+    public String getEndpoint()
+    {
+        return endpoint;
+    }
+
+    /**
+     * @return The state the call was admitted in, or null if the circuit is open
+     */
+    private synchronized State tryAcquire()
+    {
+        if (state == State.OPEN)
+        {
+            if (System.nanoTime() - openedAtNanos < openDuration.toNanos())
+            {
+                return null;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN)
+        {
+            if (halfOpenStarted >= halfOpenCalls)
+            {
+                return null;
+            }
+            halfOpenStarted++;
+        }
+        return state;
+    }
+
+    private synchronized void record(State admittedIn, boolean failed, long durationNanos)
+    {
+        // Outcomes of calls admitted before the last state change say nothing about the current state
+        if (admittedIn != state)
+        {
+            return;
+        }
+        boolean slow = durationNanos > slowCallDuration.toNanos();
+        if (state == State.HALF_OPEN)
+        {
+            if (failed || slow)
+            {
+                transitionTo(State.OPEN);
+            }
+            else if (++halfOpenSucceeded >= halfOpenCalls)
+            {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (windowCount == window.length)
+        {
+            var evicted = window[windowIndex];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        }
+        else
+        {
+            windowCount++;
+        }
+        window[windowIndex] = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+        failures += failed ? 1 : 0;
+        slowCalls += slow ? 1 : 0;
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (windowCount >= minimumCalls
+                && ((double) failures / windowCount >= failureRateThreshold || (double) slowCalls / windowCount >= slowCallRateThreshold))
+        {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private synchronized void cancelled(State admittedIn)
+    {
+        // A cancelled trial call frees its slot for another one
+        if (admittedIn == State.HALF_OPEN && state == State.HALF_OPEN)
+        {
+            halfOpenStarted--;
+        }
+    }
+
+    private void transitionTo(State next)
+    {
+        var previous = state;
+        state = next;
+        switch (next)
+        {
+            case OPEN -> openedAtNanos = System.nanoTime();
+            case HALF_OPEN ->
+            {
+                halfOpenStarted = 0;
+                halfOpenSucceeded = 0;
+            }
+            case CLOSED ->
+            {
+                windowIndex = 0;
+                windowCount = 0;
+                failures = 0;
+                slowCalls = 0;
+            }
+        }
+        logger.info("circuit breaker for {}: {} -> {}", endpoint, previous, next);
+        transitions.tryEmitNext(new Transition(endpoint, previous, next, Instant.now()));
+    }
+}
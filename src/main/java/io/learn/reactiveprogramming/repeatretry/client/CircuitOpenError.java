@@ -0,0 +1,9 @@
+package io.learn.reactiveprogramming.repeatretry.client;
+
+public class CircuitOpenError extends RuntimeException
+{
+    public CircuitOpenError(String endpoint)
+    {
+        super("circuit open for " + endpoint);
+    }
+}
@@ -1,6 +1,9 @@
 package io.learn.reactiveprogramming.repeatretry.client;
 
 import io.learn.reactiveprogramming.common.AbstractHttpClient;
+import io.learn.reactiveprogramming.common.BodyAggregator;
+import io.learn.reactiveprogramming.common.RateLimiter;
+import io.learn.reactiveprogramming.common.ResponseCache;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.netty.ByteBufFlux;
@@ -9,6 +12,17 @@ import reactor.netty.http.client.HttpClientResponse;
 
 public class ExternalServiceClient extends AbstractHttpClient
 {
+    private static final int MAX_CONCURRENT_CALLS = 100;
+
+    private final CircuitBreaker productCircuitBreaker = new CircuitBreaker("/demo06/product");
+    private final CircuitBreaker countryCircuitBreaker = new CircuitBreaker("/demo06/country");
+    private final Bulkhead bulkhead = new Bulkhead(MAX_CONCURRENT_CALLS);
+    // Retries of all calls together may add at most 20% to the traffic, plus a reserve of 10
+    private final RetryBudget retryBudget = new RetryBudget(0.2, 10);
+    // The service's quota: 50 requests per second with bursts of 50. Repeats and retries take a token like any other request.
+    // Calls wait for their token outside the bulkhead, so a burst queues up instead of filling it with waiting calls
+    private final RateLimiter rateLimiter = new RateLimiter(50, 50);
+
     /**
      * Constructs an instance of the AbstractHttpClient.
      *
@@ -20,29 +34,80 @@ public class ExternalServiceClient extends AbstractHttpClient
         super(httpClient);
     }
 
+    /**
+     * Constructs an instance of the AbstractHttpClient that caches successful lookups.
+     *
+     * @param httpClient
+     *         The HttpClient instance to be used for making HTTP requests.
+     * @param responseCache
+     *         The cache honouring the service's Cache-Control and ETag headers.
+     */
+    public ExternalServiceClient(HttpClient httpClient, ResponseCache responseCache)
+    {
+        super(httpClient, responseCache);
+    }
+
+    /**
+     * Fails with a CircuitOpenError without calling the upstream while product lookups keep failing,
+     * and with a BulkheadFullError when too many calls are already in flight.
+     * The call waits for its rate limit token before it enters the bulkhead.
+     */
     public Mono<String> getProductName(int productId)
     {
-        return get("/demo06/product/" + productId);
+        return get("/demo06/product/" + productId)
+                .transform(productCircuitBreaker::protect)
+                .transform(bulkhead::protect)
+                .transform(rateLimiter::limit);
     }
 
+    /**
+     * Fails with a CircuitOpenError without calling the upstream while country lookups keep failing,
+     * and with a BulkheadFullError when too many calls are already in flight.
+     * The call waits for its rate limit token before it enters the bulkhead.
+     */
     public Mono<String> getCountry()
     {
-        return get("/demo06/country");
+        return get("/demo06/country")
+                .transform(countryCircuitBreaker::protect)
+                .transform(bulkhead::protect)
+                .transform(rateLimiter::limit);
+    }
+
+    /**
+     * @return The retry budget shared by all calls of this client, to use in their Retry specs
+     */
+    public RetryBudget getRetryBudget()
+    {
+        return retryBudget;
+    }
+
+    /**
+     * @return The rate limit shared by every request of this client
+     */
+    public RateLimiter getRateLimiter()
+    {
+        return rateLimiter;
+    }
+
+    /**
+     * @return The state changes of the circuit breakers of every endpoint
+     */
+    public Flux<CircuitBreaker.Transition> circuitBreakerTransitions()
+    {
+        return Flux.merge(productCircuitBreaker.transitions(), countryCircuitBreaker.transitions());
     }
 
     private Mono<String> get(String path)
     {
-        return this.httpClient.get()
-                .uri(path)
-                .response(this::toResponse)
-                .next();
+        return get(path, this::toResponse)
+                .doOnSubscribe(subscription -> retryBudget.recordRequest());
     }
 
     private Flux<String> toResponse(HttpClientResponse httpClientResponse, ByteBufFlux byteBufFlux)
     {
         return switch (httpClientResponse.status().code())
         {
-            case 200 -> byteBufFlux.asString();
+            case 200 -> BodyAggregator.aggregate(byteBufFlux).flux();
             case 400 -> Flux.error(new ClientError());
             default -> Flux.error(new ServerError());
         };
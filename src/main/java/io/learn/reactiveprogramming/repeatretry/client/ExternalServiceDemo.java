@@ -4,6 +4,8 @@ import io.learn.reactiveprogramming.common.AbstractHttpClient;
 import io.learn.reactiveprogramming.common.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
@@ -21,6 +23,7 @@ public class ExternalServiceDemo
     private static void repeat()
     {
         var client = new ExternalServiceClient(AbstractHttpClient.createDefaultHttpClient());
+        // Every repeat waits for a token from the client's rate limiter, so the loop polls at the quota instead of flat out
         client.getCountry()
                 .repeat()
                 .takeUntil(c -> c.equalsIgnoreCase("India"))
@@ -31,16 +34,43 @@ public class ExternalServiceDemo
     {
         var client = new ExternalServiceClient(AbstractHttpClient.createDefaultHttpClient());
         client.getProductName(2) //1 for client error and 2 for random server error
-                .retryWhen(retryOnServerError())
+                .retryWhen(retryOnServerError(client.getRetryBudget()))
                 .subscribe(Util.subscriber());
     }
 
-    private static Retry retryOnServerError()
+    private static void retryWithBudget()
     {
+        var client = new ExternalServiceClient(AbstractHttpClient.createDefaultHttpClient());
+        var budget = client.getRetryBudget();
+        // 50 calls failing at once share a handful of retries instead of making 20 attempts each
+        Flux.range(1, 50)
+                .flatMap(i -> client.getProductName(2)
+                        .retryWhen(budget.decorrelatedJitter(20, Duration.ofMillis(100), Duration.ofSeconds(5), e -> e instanceof ServerError))
+                        .onErrorResume(e -> Mono.just(e.getMessage())))
+                .doOnComplete(() -> logger.info("requests: {}, retries allowed: {}, denied: {}",
+                        budget.getRequestCount(), budget.getAllowedCount(), budget.getDeniedCount()))
+                .subscribe(Util.subscriber());
+    }
 
-        return Retry.fixedDelay(20, Duration.ofSeconds(1))
-                .filter(e -> e instanceof ServerError)
-                .doBeforeRetry(rs -> logger.info("retrying {}", rs.failure().getMessage()));
+    private static void circuitBreaker()
+    {
+        var client = new ExternalServiceClient(AbstractHttpClient.createDefaultHttpClient());
+        client.circuitBreakerTransitions()
+                .subscribe(t -> logger.info("{} circuit {} -> {}", t.endpoint(), t.from(), t.to()));
+        // Once the breaker opens, the CircuitOpenError is not a ServerError, so the retries stop
+        Flux.interval(Duration.ofMillis(200))
+                .take(200)
+                .concatMap(i -> client.getProductName(2)
+                        .retryWhen(retryOnServerError(client.getRetryBudget()))
+                        .onErrorResume(e -> Mono.just(e.getMessage())))
+                .subscribe(Util.subscriber());
+    }
+
+    private static Retry retryOnServerError(RetryBudget budget)
+    {
+        // Jittered exponential backoff, so clients recovering from the same outage do not retry in lockstep
+        return budget.decorrelatedJitter(20, Duration.ofMillis(100), Duration.ofSeconds(5), e -> e instanceof ServerError,
+                rs -> logger.info("retrying {}", rs.failure().getMessage()));
     }
 
 }
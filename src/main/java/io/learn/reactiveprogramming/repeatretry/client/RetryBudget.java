@@ -0,0 +1,151 @@
+package io.learn.reactiveprogramming.repeatretry.client;
+
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Limits the retries of a whole client to a share of its normal traffic.
+ *
+ * Per-call retry policies multiply load exactly when the upstream is failing: with 20 retries per call,
+ * an outage turns every request into 21. A budget is a token bucket shared by all calls of a client:
+ * every request deposits ratio tokens (up to maxTokens) and every retry withdraws a whole token. When
+ * the bucket is empty, failures are passed on instead of retried, so retries stay at about ratio of
+ * the traffic however many calls fail at once.
+ *
+ * The budget is spent through {@link #decorrelatedJitter}, a backoff that spreads retries out instead of letting
+ * them fire in lockstep. It takes a token only once a failure is retryable and the call has retries left. A RetrySpec
+ * filter would not do: RetrySpec checks its filters before maxAttempts, so the final failure, which is passed on
+ * anyway, would spend a token too.
+ */
+public class RetryBudget
+{
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    /**
+     * @param ratio     The retries allowed per request, for example 0.2 for one retry per five requests
+     * @param maxTokens The retries that may be saved up during quiet periods and spent in a burst
+     */
+    public RetryBudget(double ratio, int maxTokens)
+    {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    /**
+     * Records a request, adding ratio tokens to the budget. Call it once per attempt sent to the upstream.
+     */
+    public synchronized void recordRequest()
+    {
+        requests.increment();
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    /**
+     * Withdraws one retry from the budget. Only call it for a retry that will happen if the budget allows it.
+     *
+     * @return true if the retry may go ahead
+     */
+    private synchronized boolean allowRetry()
+    {
+        if (tokens >= 1)
+        {
+            tokens--;
+            allowed.increment();
+            return true;
+        }
+        denied.increment();
+        return false;
+    }
+
+    /**
+     * Creates a Retry with exponential backoff and decorrelated jitter, drawing every retry from this budget.
+     * Each delay is random between base and three times the previous delay, capped at maxDelay, so retries
+     * from many callers do not line up.
+     *
+     * @param maxRetries The maximum number of retries per call
+     * @param base       The smallest delay before a retry
+     * @param maxDelay   The largest delay before a retry
+     * @param retryable  Selects the failures worth retrying; other failures are passed on immediately
+     * @return A Retry passing on the failure once it is not retryable, maxRetries is reached or the budget is spent
+     */
+    public Retry decorrelatedJitter(int maxRetries, Duration base, Duration maxDelay, Predicate<? super Throwable> retryable)
+    {
+        return decorrelatedJitter(maxRetries, base, maxDelay, retryable, signal -> {});
+    }
+
+    /**
+     * Like {@link #decorrelatedJitter(int, Duration, Duration, Predicate)}, calling beforeRetry for every retry the budget allowed.
+     *
+     * @param beforeRetry Called with the failure's RetrySignal before the delay, for example to log the retry
+     */
+    public Retry decorrelatedJitter(int maxRetries, Duration base, Duration maxDelay, Predicate<? super Throwable> retryable,
+                                    Consumer<Retry.RetrySignal> beforeRetry)
+    {
+        long baseNanos = base.toNanos();
+        long maxNanos = maxDelay.toNanos();
+        // The companion is created once per subscription, so each call has its own previous delay
+        return Retry.from(signals ->
+        {
+            var previousNanos = new long[]{baseNanos};
+            return signals.concatMap(signal ->
+            {
+                var failure = signal.failure();
+                // The token is taken last, so a failure that is passed on anyway never spends one
+                if (!retryable.test(failure) || signal.totalRetriesInARow() >= maxRetries || !allowRetry())
+                {
+                    return Mono.error(failure);
+                }
+                beforeRetry.accept(signal);
+                long upper = Math.min(maxNanos, Math.max(baseNanos, previousNanos[0] * 3));
+                long delay = upper > baseNanos ? ThreadLocalRandom.current().nextLong(baseNanos, upper + 1) : baseNanos;
+                previousNanos[0] = delay;
+                return Mono.delay(Duration.ofNanos(delay));
+            });
+        });
+    }
+
+    /**
+     * @return The number of requests recorded
+     */
+    public long getRequestCount()
+    {
+        return requests.sum();
+    }
+
+    /**
+     * @return The number of retries the budget allowed
+     */
+    public long getAllowedCount()
+    {
+        return allowed.sum();
+    }
+
+    /**
+     * @return The number of retries the budget denied
+     */
+    public long getDeniedCount()
+    {
+        return denied.sum();
+    }
+
+    /**
+     * @return The retries currently available
+     */
+    public synchronized double getTokens()
+    {
+        return tokens;
+    }
+}
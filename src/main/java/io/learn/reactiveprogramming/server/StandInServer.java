@@ -0,0 +1,386 @@
+package io.learn.reactiveprogramming.server;
+
+import io.learn.reactiveprogramming.common.DataGenerator;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.server.HttpServerRoutes;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An embedded stand-in for the external service on localhost:7070 that the clients in this project call.
+ *
+ * It serves the endpoints the clients use, so they can be run, load-tested and benchmarked offline:
+ * - /demo01/product/{id}                      "product-{id}", with an ETag and Cache-Control: max-age.
+ * - /demo01/product/batch?ids=1,2,3           one "id:product-{id}" line per requested product.
+ * - /demo02/stock/stream                      a random walk of stock prices around 100, one per chunk, or one per line
+ *                                             if the Accept header asks for application/x-ndjson.
+ * - /demo03/product/{id}                      "product-{id}" after a slow latency; IDs above productCount return an empty body.
+ * - /demo03/timeout-fallback/product/{id}     "timeout-fallback-product-{id}".
+ * - /demo03/empty-fallback/product/{id}       "empty-fallback-product-{id}".
+ * - /demo04/orders/stream                     an endless stream of orders. Depending on the Accept header: one JSON object
+ *                                             per line (application/x-ndjson), one "order" event per order (text/event-stream),
+ *                                             or "orderId:category:price:quantity", one per chunk.
+ * - /demo06/country                           a random country name.
+ * - /demo06/product/{id}                      400 for ID 1; otherwise 500 with probability faultRate, else "product-{id}".
+ *
+ * Every request/response endpoint waits for a delay drawn from a {@link Latency} and fails with a 500 with
+ * probability errorRate, so latency distributions and outages can be reproduced. Streams emit at a fixed rate.
+ */
+public class StandInServer
+{
+    private static final Logger log = LoggerFactory.getLogger(StandInServer.class);
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String EVENT_STREAM = "text/event-stream";
+
+    /**
+     * A distribution of response delays.
+     */
+    @FunctionalInterface
+    public interface Latency
+    {
+        Duration next();
+
+        static Latency none()
+        {
+            return () -> Duration.ZERO;
+        }
+
+        static Latency fixed(Duration delay)
+        {
+            return () -> delay;
+        }
+
+        /**
+         * @return Delays spread evenly between min and max
+         */
+        static Latency uniform(Duration min, Duration max)
+        {
+            long minNanos = min.toNanos();
+            long maxNanos = max.toNanos();
+            return () -> Duration.ofNanos(ThreadLocalRandom.current().nextLong(minNanos, maxNanos + 1));
+        }
+
+        /**
+         * A long-tailed distribution typical of real services: most delays are close to the median,
+         * a few are many times longer.
+         *
+         * @param median The median delay
+         * @param sigma  The spread; 0.5 gives a p99 of about 3x the median, 1.0 about 10x
+         */
+        static Latency logNormal(Duration median, double sigma)
+        {
+            long medianNanos = median.toNanos();
+            return () -> Duration.ofNanos((long) (medianNanos * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian())));
+        }
+    }
+
+    private final int port;
+    private final Latency latency;
+    private final Latency slowLatency;
+    private final double errorRate;
+    private final double faultRate;
+    private final int productCount;
+    private final Duration cacheMaxAge;
+    private final Duration stockInterval;
+    private final int stockPrices;
+    private final Duration orderInterval;
+    private final DataGenerator data = DataGenerator.threadLocal();
+
+    private StandInServer(Builder builder)
+    {
+        this.port = builder.port;
+        this.latency = builder.latency;
+        this.slowLatency = builder.slowLatency;
+        this.errorRate = builder.errorRate;
+        this.faultRate = builder.faultRate;
+        this.productCount = builder.productCount;
+        this.cacheMaxAge = builder.cacheMaxAge;
+        this.stockInterval = Duration.ofNanos(1_000_000_000L / builder.stockRate);
+        this.stockPrices = builder.stockPrices;
+        this.orderInterval = Duration.ofNanos(1_000_000_000L / builder.orderRate);
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * Starts the stand-in on port 7070 with the default settings and runs until the process is stopped.
+     */
+    public static void main(String[] args)
+    {
+        StandInServer.builder().build().start().onDispose().block();
+    }
+
+    /**
+     * Binds the server and starts serving.
+     *
+     * @return The running server; dispose it to stop serving
+     */
+    public DisposableServer start()
+    {
+        var server = HttpServer.create()
+                .port(port)
+                .route(this::routes)
+                .bindNow();
+        log.info("stand-in server listening on port {}", server.port());
+        return server;
+    }
+
+    private void routes(HttpServerRoutes routes)
+    {
+        routes
+                // The batch route must come before {id}, which would match "batch" too
+                .get("/demo01/product/batch", this::productBatch)
+                .get("/demo01/product/{id}", this::cacheableProduct)
+                .get("/demo02/stock/stream", this::stockStream)
+                .get("/demo03/product/{id}", (request, response) ->
+                {
+                    int id = Integer.parseInt(request.param("id"));
+                    return reply(response, slowLatency, id <= productCount ? "product-" + id : "");
+                })
+                .get("/demo03/timeout-fallback/product/{id}", (request, response) ->
+                        reply(response, latency, "timeout-fallback-product-" + request.param("id")))
+                .get("/demo03/empty-fallback/product/{id}", (request, response) ->
+                        reply(response, latency, "empty-fallback-product-" + request.param("id")))
+                .get("/demo04/orders/stream", this::orderStream)
+                .get("/demo06/country", (request, response) -> reply(response, latency, data.country()))
+                .get("/demo06/product/{id}", this::faultyProduct);
+    }
+
+    private Publisher<Void> cacheableProduct(HttpServerRequest request, HttpServerResponse response)
+    {
+        var id = request.param("id");
+        // The name of a product never changes, so its ETag only depends on the ID
+        var etag = "\"product-" + id + "\"";
+        response.header(HttpHeaderNames.ETAG, etag)
+                .header(HttpHeaderNames.CACHE_CONTROL, "max-age=" + cacheMaxAge.toSeconds());
+        if (etag.equals(request.requestHeaders().get(HttpHeaderNames.IF_NONE_MATCH)))
+        {
+            return Mono.delay(latency.next()).then(response.status(HttpResponseStatus.NOT_MODIFIED).send().then());
+        }
+        return reply(response, latency, "product-" + id);
+    }
+
+    private Publisher<Void> productBatch(HttpServerRequest request, HttpServerResponse response)
+    {
+        var ids = new QueryStringDecoder(request.uri()).parameters().getOrDefault("ids", List.of());
+        var body = new StringBuilder();
+        for (var value : ids)
+        {
+            for (var id : value.split(","))
+            {
+                if (!id.isBlank())
+                {
+                    body.append(id.trim()).append(":product-").append(id.trim()).append('\n');
+                }
+            }
+        }
+        return reply(response, latency, body.toString());
+    }
+
+    private Publisher<Void> faultyProduct(HttpServerRequest request, HttpServerResponse response)
+    {
+        int id = Integer.parseInt(request.param("id"));
+        if (id == 1)
+        {
+            return Mono.delay(latency.next())
+                    .then(response.status(HttpResponseStatus.BAD_REQUEST).sendString(Mono.just("bad request")).then());
+        }
+        if (ThreadLocalRandom.current().nextDouble() < faultRate)
+        {
+            return Mono.delay(latency.next())
+                    .then(response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).sendString(Mono.just("server error")).then());
+        }
+        return reply(response, latency, "product-" + id);
+    }
+
+    /**
+     * A tick every interval while the client keeps up. Flux.interval fails with an OverflowException once a tick finds
+     * no demand, and sendString only requests more as the socket drains, so a slow client would kill the stream;
+     * ticks without demand are dropped instead, as a live feed would.
+     */
+    private static Flux<Long> ticks(Duration interval)
+    {
+        return Flux.interval(interval).onBackpressureDrop();
+    }
+
+    private Publisher<Void> stockStream(HttpServerRequest request, HttpServerResponse response)
+    {
+        var prices = ticks(stockInterval)
+                .take(stockPrices)
+                .scan(100, (price, tick) -> Math.max(1, price + data.number(-5, 5)))
+                .skip(1);
+        if (request.requestHeaders().get(HttpHeaderNames.ACCEPT, "").contains(NDJSON))
+        {
+            response.header(HttpHeaderNames.CONTENT_TYPE, NDJSON);
+            return response.sendString(prices.map(price -> price + "\n"));
+        }
+        return response.sendString(prices.map(String::valueOf));
+    }
+
+    private Publisher<Void> orderStream(HttpServerRequest request, HttpServerResponse response)
+    {
+        var accept = request.requestHeaders().get(HttpHeaderNames.ACCEPT, "");
+        if (accept.contains(NDJSON))
+        {
+            response.header(HttpHeaderNames.CONTENT_TYPE, NDJSON);
+            return response.sendString(ticks(orderInterval).map(orderId -> orderJson(orderId) + "\n"));
+        }
+        if (accept.contains(EVENT_STREAM))
+        {
+            response.header(HttpHeaderNames.CONTENT_TYPE, EVENT_STREAM);
+            return response.sendString(ticks(orderInterval)
+                    .map(orderId -> "event: order\nid: " + orderId + "\ndata: " + orderJson(orderId) + "\n\n"));
+        }
+        var orders = ticks(orderInterval)
+                .map(orderId -> orderId + ":" + data.department() + ":" + data.number(10, 100) + ":" + data.number(1, 10));
+        return response.sendString(orders);
+    }
+
+    private String orderJson(long orderId)
+    {
+        return "{\"orderId\":" + orderId + ",\"category\":\"" + data.department() + "\",\"price\":" + data.number(10, 100)
+                + ",\"quantity\":" + data.number(1, 10) + "}";
+    }
+
+    /**
+     * Answers with the body after a delay drawn from the latency, or with a 500 with probability errorRate.
+     */
+    private Publisher<Void> reply(HttpServerResponse response, Latency delay, String body)
+    {
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate)
+        {
+            return Mono.delay(delay.next())
+                    .then(response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR).sendString(Mono.just("server error")).then());
+        }
+        return response.sendString(Mono.delay(delay.next()).map(tick -> body));
+    }
+
+    /**
+     * Configuration for a StandInServer. The defaults approximate the original service.
+     */
+    public static class Builder
+    {
+        private int port = 7070;
+        private Latency latency = Latency.uniform(Duration.ofMillis(100), Duration.ofMillis(500));
+        private Latency slowLatency = Latency.uniform(Duration.ZERO, Duration.ofSeconds(3));
+        private double errorRate;
+        private double faultRate = 0.5;
+        private int productCount = 10;
+        private Duration cacheMaxAge = Duration.ofSeconds(10);
+        private int stockRate = 2;
+        private int stockPrices = 40;
+        private int orderRate = 20;
+
+        private Builder()
+        {
+        }
+
+        public Builder port(int port)
+        {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * The delay of every request/response endpoint except /demo03/product/{id}.
+         */
+        public Builder latency(Latency latency)
+        {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * The delay of /demo03/product/{id}; by default a third of the requests exceed the client's 2 second timeout.
+         */
+        public Builder slowLatency(Latency slowLatency)
+        {
+            this.slowLatency = slowLatency;
+            return this;
+        }
+
+        /**
+         * The probability, between 0 and 1, that a request/response endpoint answers with a 500.
+         */
+        public Builder errorRate(double errorRate)
+        {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * The probability, between 0 and 1, that /demo06/product/{id} answers with a 500 for IDs other than 1.
+         */
+        public Builder faultRate(double faultRate)
+        {
+            this.faultRate = faultRate;
+            return this;
+        }
+
+        /**
+         * The number of products known to /demo03/product/{id}; higher IDs return an empty body.
+         */
+        public Builder productCount(int productCount)
+        {
+            this.productCount = productCount;
+            return this;
+        }
+
+        /**
+         * The max-age sent by /demo01/product/{id}.
+         */
+        public Builder cacheMaxAge(Duration cacheMaxAge)
+        {
+            this.cacheMaxAge = cacheMaxAge;
+            return this;
+        }
+
+        /**
+         * The number of prices per second on /demo02/stock/stream.
+         */
+        public Builder stockRate(int stockRate)
+        {
+            this.stockRate = stockRate;
+            return this;
+        }
+
+        /**
+         * The number of prices sent on /demo02/stock/stream before it completes.
+         */
+        public Builder stockPrices(int stockPrices)
+        {
+            this.stockPrices = stockPrices;
+            return this;
+        }
+
+        /**
+         * The number of orders per second on /demo04/orders/stream.
+         */
+        public Builder orderRate(int orderRate)
+        {
+            this.orderRate = orderRate;
+            return this;
+        }
+
+        public StandInServer build()
+        {
+            return new StandInServer(this);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.learn.reactiveprogramming.subscriber;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * AdaptiveDemandSubscriber is a base class for Subscribers that size their own request(n) calls.
+ *
+ * Instead of a fixed demand (nothing for SubscriberImpl, Long.MAX_VALUE for DefaultSubscriber,
+ * limitRate(5) in the backpressure demos) it measures how long each item takes to process and
+ * keeps enough demand outstanding to cover roughly targetBatchLatency worth of work:
+ * - The high watermark is targetBatchLatency divided by the average processing time,
+ *   clamped between minBatch and maxBatch.
+ * - The low watermark is a quarter of the high watermark.
+ * - Outstanding demand (requested but not yet received) is the queue depth the upstream may build up
+ *   for us. Once it falls to the low watermark, it is topped up to the high watermark.
+ *
+ * The effect is that fast consumers request large batches and rarely talk to the upstream,
+ * while slow consumers request a handful of items and never let a large upstream buffer form.
+ *
+ * Subclasses implement {@link #process(Object)}; onError and onComplete can be overridden.
+ *
+ * @param <T> The type of elements handled by this subscriber
+ */
+public abstract class AdaptiveDemandSubscriber<T> implements Subscriber<T>
+{
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveDemandSubscriber.class);
+    private static final long DEFAULT_MIN_BATCH = 1;
+    private static final long DEFAULT_MAX_BATCH = 256;
+    private static final Duration DEFAULT_TARGET_BATCH_LATENCY = Duration.ofMillis(100);
+    // Weight of the newest sample in the moving average of the processing time
+    private static final double SMOOTHING = 0.2;
+
+    private final long minBatch;
+    private final long maxBatch;
+    private final long targetBatchNanos;
+    private Subscription subscription;
+    private long outstanding;
+    private long highWatermark;
+    private double averageProcessingNanos;
+
+    /**
+     * Creates a subscriber that starts with single-item requests, never asks for more than 256 at a time
+     * and aims to keep about 100 milliseconds of work outstanding.
+     */
+    protected AdaptiveDemandSubscriber()
+    {
+        this(DEFAULT_MIN_BATCH, DEFAULT_MAX_BATCH, DEFAULT_TARGET_BATCH_LATENCY);
+    }
+
+    /**
+     * @param minBatch           The smallest amount of demand kept outstanding, at least 1.
+     * @param maxBatch           The largest amount of demand kept outstanding.
+     * @param targetBatchLatency How much processing time the outstanding demand should represent.
+     */
+    protected AdaptiveDemandSubscriber(long minBatch, long maxBatch, Duration targetBatchLatency)
+    {
+        if (minBatch < 1 || maxBatch < minBatch)
+        {
+            throw new IllegalArgumentException("expected 1 <= minBatch <= maxBatch but was " + minBatch + ", " + maxBatch);
+        }
+        this.minBatch = minBatch;
+        this.maxBatch = maxBatch;
+        this.targetBatchNanos = targetBatchLatency.toNanos();
+        this.highWatermark = minBatch;
+    }
+
+    /**
+     * Processes one item. The time spent here drives the demand sizing.
+     *
+     * @param item The item emitted by the Publisher
+     */
+    protected abstract void process(T item);
+
+    @Override
+    public void onSubscribe(Subscription subscription)
+    {
+        this.subscription = subscription;
+        // Nothing has been measured yet, so start small
+        this.outstanding = highWatermark;
+        subscription.request(highWatermark);
+    }
+
+    @Override
+    public void onNext(T item)
+    {
+        var start = System.nanoTime();
+        process(item);
+        record(System.nanoTime() - start);
+        outstanding--;
+        if (outstanding <= highWatermark / 4)
+        {
+            var demand = highWatermark - outstanding;
+            outstanding += demand;
+            subscription.request(demand);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+        log.error("error", throwable);
+    }
+
+    @Override
+    public void onComplete()
+    {
+        log.info("completed");
+    }
+
+    /**
+     * @return The demand currently kept outstanding once the low watermark is reached.
+     */
+    public long getHighWatermark()
+    {
+        return highWatermark;
+    }
+
+    /**
+     * @return The moving average of the time spent in process, in nanoseconds.
+     */
+    public double getAverageProcessingNanos()
+    {
+        return averageProcessingNanos;
+    }
+
+    /**
+     * @return The Subscription, for subclasses that want to cancel.
+     */
+    protected Subscription getSubscription()
+    {
+        return subscription;
+    }
+
+    private void record(long elapsedNanos)
+    {
+        averageProcessingNanos = averageProcessingNanos == 0
+                ? elapsedNanos
+                : averageProcessingNanos + SMOOTHING * (elapsedNanos - averageProcessingNanos);
+        var batch = (long) (targetBatchNanos / Math.max(averageProcessingNanos, 1));
+        highWatermark = Math.clamp(batch, minBatch, maxBatch);
+    }
+}